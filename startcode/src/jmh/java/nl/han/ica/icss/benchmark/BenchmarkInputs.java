@@ -0,0 +1,44 @@
+package nl.han.ica.icss.benchmark;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resolves the benchmark input parameter to ICSS source text.
+ * Names ending in .icss are loaded from the shipped resources, "generated-N" produces a stylesheet with N rules.
+ */
+final class BenchmarkInputs {
+
+    private static final String GENERATED_PREFIX = "generated-";
+    private static final long SEED = 2020;
+
+    private BenchmarkInputs() {
+    }
+
+    static String load(String input) {
+        if (input.startsWith(GENERATED_PREFIX)) {
+            return generate(Integer.parseInt(input.substring(GENERATED_PREFIX.length())));
+        }
+        try {
+            URL url = BenchmarkInputs.class.getClassLoader().getResource(input);
+            if (url == null) {
+                throw new IllegalArgumentException("Unknown benchmark input " + input);
+            }
+            return Resources.toString(url, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The same seed is used for every run, so before and after numbers are measured on identical input.
+    private static String generate(int rules) {
+        StylesheetShape shape = new StylesheetShape().rules(rules);
+        return new StylesheetGenerator(SEED).generate(shape);
+    }
+}
@@ -0,0 +1,40 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.ParallelChecker;
+import nl.han.ica.icss.checker.SemanticError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckerBenchmark extends InputState {
+
+    private AST ast;
+
+    // Checking annotates nodes with errors, types and the slots of their variables, all of which every check
+    // resolves and sets again, so the same AST can be checked over and over.
+    @Setup(Level.Trial)
+    public void setup() {
+        loadSource();
+        ast = parse();
+    }
+
+    @Benchmark
+    public AST check() {
+        new Checker().check(ast);
+        return ast;
+    }
+
+    // Unlike check this collects the errors, which callers of check still have to do with getErrors
+    @Benchmark
+    public ArrayList<SemanticError> parallelCheck() {
+        return new ParallelChecker().check(ast);
+    }
+}
@@ -0,0 +1,57 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.generator.ParallelGenerator;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark extends InputState {
+
+    private AST ast;
+
+    // Generating does not modify the AST, so it is transformed once per trial.
+    @Setup(Level.Trial)
+    public void setup() {
+        loadSource();
+        ast = parse();
+        new Checker().check(ast);
+        new EvalExpressions().apply(ast);
+        new RemoveIf().apply(ast);
+        new ReplaceNestedStylerule().apply(ast);
+    }
+
+    @Benchmark
+    public String generate() {
+        return new Generator().generate(ast);
+    }
+
+    // Streams into a channel that drops the bytes, so only the generator and its buffer are measured
+    @Benchmark
+    public void generateToChannel() throws IOException {
+        new Generator().generate(ast, Channels.newChannel(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public String parallelGenerate() {
+        return new ParallelGenerator().generate(ast);
+    }
+
+    @Benchmark
+    public void parallelGenerateToChannel() throws IOException {
+        new ParallelGenerator().generate(ast, Channels.newChannel(OutputStream.nullOutputStream()));
+    }
+}
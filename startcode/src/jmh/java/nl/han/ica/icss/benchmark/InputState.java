@@ -0,0 +1,33 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark parameter: the shipped level files and generated stylesheets of 1k, 100k and 1M rules.
+ */
+@State(Scope.Benchmark)
+public abstract class InputState {
+
+    @Param({"level0.icss", "level1.icss", "level2.icss", "level3.icss",
+            "generated-1000", "generated-100000", "generated-1000000"})
+    public String input;
+
+    protected String source;
+
+    protected void loadSource() {
+        source = BenchmarkInputs.load(input);
+    }
+
+    protected AST parse() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        if (!pipeline.isParsed()) {
+            throw new IllegalStateException("Benchmark input " + input + " does not parse: " + pipeline.getErrors());
+        }
+        return pipeline.getAST();
+    }
+}
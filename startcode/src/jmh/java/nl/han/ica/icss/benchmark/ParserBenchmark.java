@@ -0,0 +1,44 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.StylesheetParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark extends InputState {
+
+    // Baseline for the two-stage parse done by Pipeline.parseString
+    private final StylesheetParser fullLLParser = new StylesheetParser(false);
+    // Baseline for building the AST while parsing instead of from a parse tree
+    private final StylesheetParser parseTreeParser = new StylesheetParser(true, true);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        loadSource();
+    }
+
+    @Benchmark
+    public AST parseString() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        return pipeline.getAST();
+    }
+
+    @Benchmark
+    public AST parseFullLL() {
+        return fullLLParser.parse(source, new ArrayList<>());
+    }
+
+    @Benchmark
+    public AST parseWithParseTree() {
+        return parseTreeParser.parse(source, new ArrayList<>());
+    }
+}
@@ -0,0 +1,66 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.parser.WarmupProfile;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the very first parse in a fresh JVM, the case that dominates short-lived build invocations.
+ * Every fork measures a single parse of level3.icss:
+ * cold without any preparation, warm after StylesheetParser.warmUp and profile after loading a saved WarmupProfile.
+ * The preparation happens in the setup and is not measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"cold", "warm", "profile"})
+    public String start;
+
+    private StylesheetParser parser;
+    private String source;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        source = BenchmarkInputs.load("level3.icss");
+        parser = new StylesheetParser();
+        switch (start) {
+            case "warm":
+                parser.warmUp();
+                break;
+            case "profile":
+                WarmupProfile.load(profile(), parser);
+                break;
+            default:
+        }
+    }
+
+    // Every fork shares the profile, it is recorded by the first one that needs it
+    private static synchronized Path profile() throws IOException {
+        Path profile = Path.of(System.getProperty("java.io.tmpdir"), "icss-benchmark.profile");
+        if (!Files.exists(profile)) {
+            String sample = new StylesheetGenerator(2020).generate(new StylesheetShape().rules(50).ifDepth(2).nestingDepth(2));
+            WarmupProfile.save(profile, Collections.singletonList(sample));
+        }
+        return profile;
+    }
+
+    @Benchmark
+    public AST firstParse() {
+        return parser.parse(source, new ArrayList<>());
+    }
+}
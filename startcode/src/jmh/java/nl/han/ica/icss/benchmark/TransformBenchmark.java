@@ -0,0 +1,102 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.FusedTransformer;
+import nl.han.ica.icss.transforms.ParallelTransformer;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transforms rewrite the AST in place, so every invocation gets a freshly prepared tree.
+ * The preparation is done in invocation level setups and is not part of the measurement.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+    public static class EvalExpressionsState extends InputState {
+        AST ast;
+
+        @Setup(Level.Trial)
+        public void load() {
+            loadSource();
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            ast = parse();
+            new Checker().check(ast);
+        }
+    }
+
+    public static class RemoveIfState extends EvalExpressionsState {
+        @Override
+        @Setup(Level.Invocation)
+        public void prepare() {
+            super.prepare();
+            new EvalExpressions().apply(ast);
+        }
+    }
+
+    public static class ReplaceNestedStyleruleState extends EvalExpressionsState {
+        @Override
+        @Setup(Level.Invocation)
+        public void prepare() {
+            super.prepare();
+            new EvalExpressions().apply(ast);
+            new RemoveIf().apply(ast);
+        }
+    }
+
+    @Benchmark
+    public AST evalExpressions(EvalExpressionsState state) {
+        new EvalExpressions().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST evalExpressionsWithTreeWalker(EvalExpressionsState state) {
+        new EvalExpressions(false).apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST removeIf(RemoveIfState state) {
+        new RemoveIf().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST replaceNestedStylerule(ReplaceNestedStyleruleState state) {
+        new ReplaceNestedStylerule().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST separatePasses(EvalExpressionsState state) {
+        new EvalExpressions().apply(state.ast);
+        new RemoveIf().apply(state.ast);
+        new ReplaceNestedStylerule().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST fusedTransformer(EvalExpressionsState state) {
+        new FusedTransformer().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST parallelTransformer(EvalExpressionsState state) {
+        new ParallelTransformer().apply(state.ast);
+        return state.ast;
+    }
+}
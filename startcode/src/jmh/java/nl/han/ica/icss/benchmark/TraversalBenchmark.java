@@ -0,0 +1,73 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares walking the AST through getChildren, which allocates a list for every node,
+ * with the indexed child access the passes use. Run with the GC profiler to see the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraversalBenchmark extends InputState {
+
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        loadSource();
+        ast = parse();
+    }
+
+    @Benchmark
+    public int walkWithGetChildren() {
+        int count = 0;
+        ArrayDeque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(ast.root);
+        while (!stack.isEmpty()) {
+            ASTNode node = stack.pop();
+            count++;
+            List<ASTNode> children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int walkWithChildAccess() {
+        int count = 0;
+        ArrayDeque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(ast.root);
+        while (!stack.isEmpty()) {
+            ASTNode node = stack.pop();
+            count++;
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int walkWithASTWalker() {
+        int count = 0;
+        ASTWalker walker = new ASTWalker(ast.root);
+        while (walker.next()) {
+            if (walker.isEnter()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
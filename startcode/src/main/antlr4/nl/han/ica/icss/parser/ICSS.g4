@@ -47,7 +47,8 @@ style_rule_element: variable | declaration | if_statement | style_rule;
 declaration: property COLON value SEMICOLON;
 selector: selector_element | selector_element ',' selector;
 selector_element: LOWER_IDENT | ID_IDENT | CLASS_IDENT;
-property: 'width' | 'height' | 'background-color' | 'color';
+// Any name, the checker validates it against the PropertyRegistry
+property: LOWER_IDENT;
 
 /// Math
 expression: numeric_value | variable_identifier | expression MUL expression | expression (PLUS | MIN) expression;
@@ -0,0 +1,143 @@
+package nl.han.ica.icss;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Compiles ICSS to CSS like an ICSSCompiler, and remembers the results of recent compiles.
+ * A result is looked up by a 128-bit hash of the source text and the options that change it, so compiling an
+ * unchanged source again costs hashing it instead of parsing it. Failed compiles are remembered with their errors as well.
+ *
+ * The cache holds at most about maximumWeight characters of CSS and errors, the entries used least are evicted first.
+ * Compiles with CompileOptions.withKeepAst are not cached, as the AST of a result belongs to the caller.
+ * A CompileCache is thread-safe, and concurrent compiles of the same source wait for one compile.
+ */
+public class CompileCache {
+
+    // 8M characters, about 8 MB as CSS and errors are mostly Latin-1 and stored as compact strings
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 8 * 1024 * 1024;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final ICSSCompiler compiler;
+    private final Cache<Key, CompileResult> results;
+
+    public CompileCache() {
+        this(new ICSSCompiler(), DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * @param compiler      the compiler for sources that are not cached
+     * @param maximumWeight the number of characters of CSS and errors to hold at most
+     */
+    public CompileCache(ICSSCompiler compiler, long maximumWeight) {
+        this.compiler = compiler;
+        this.results = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(CompileCache::weigh)
+                .recordStats()
+                .build();
+    }
+
+    public CompileResult compile(CharSequence source) {
+        return compile(source, CompileOptions.DEFAULT);
+    }
+
+    public CompileResult compile(CharSequence source, CompileOptions options) {
+        if (options.isKeepAst()) {
+            return compiler.compile(source, options);
+        }
+        Key key = new Key(HASH.hashUnencodedChars(source), source.length(), options);
+        try {
+            return results.get(key, () -> compiler.compile(source, options));
+        } catch (ExecutionException e) {
+            // ICSSCompiler.compile of a CharSequence throws no checked exceptions
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Compiles a UTF-8 encoded file. The file is read and hashed as bytes, and only decoded when it is not cached.
+     */
+    public CompileResult compile(Path source, CompileOptions options) throws IOException {
+        if (options.isKeepAst()) {
+            return compiler.compile(source, options);
+        }
+        byte[] bytes = Files.readAllBytes(source);
+        // Keyed on the bytes, so the same text from a file and from a String are two different entries
+        Key key = new Key(HASH.hashBytes(bytes), bytes.length, options);
+        try {
+            return results.get(key, () -> compiler.compile(new ByteArrayInputStream(bytes), options));
+        } catch (ExecutionException e) {
+            // Only decoding the bytes can fail
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /**
+     * @return the number of hits, misses and evictions since the cache was created
+     */
+    public CacheStats stats() {
+        return results.stats();
+    }
+
+    public long size() {
+        return results.size();
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    // The characters a result holds
+    private static int weigh(Key key, CompileResult result) {
+        long weight = result.getCss() != null ? result.getCss().length() : 0;
+        for (String error : result.getErrors()) {
+            weight += error.length();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    // A source by its hash and length, with the options that change the result. A parallel or compact compile
+    // gives the same result as a plain one, so those share an entry.
+    private static final class Key {
+        private final HashCode hash;
+        private final int length;
+        private final boolean check;
+        private final boolean transform;
+
+        Key(HashCode hash, int length, CompileOptions options) {
+            this.hash = hash;
+            this.length = length;
+            this.check = options.isCheck();
+            this.transform = options.isTransform();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return length == that.length &&
+                    check == that.check &&
+                    transform == that.transform &&
+                    hash.equals(that.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash.asLong(), length, check, transform);
+        }
+    }
+}
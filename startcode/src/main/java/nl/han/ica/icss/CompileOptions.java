@@ -0,0 +1,100 @@
+package nl.han.ica.icss;
+
+import java.util.Objects;
+
+/**
+ * Immutable settings for a single compile. The with methods return a modified copy.
+ */
+public final class CompileOptions {
+
+    public static final CompileOptions DEFAULT = new CompileOptions(true, true, false, false, false);
+
+    private final boolean check;
+    private final boolean transform;
+    private final boolean keepAst;
+    private final boolean compactAst;
+    private final boolean parallel;
+
+    private CompileOptions(boolean check, boolean transform, boolean keepAst, boolean compactAst, boolean parallel) {
+        this.check = check;
+        this.transform = transform;
+        this.keepAst = keepAst;
+        this.compactAst = compactAst;
+        this.parallel = parallel;
+    }
+
+    // Run the semantic checker before transforming
+    public CompileOptions withCheck(boolean check) {
+        return new CompileOptions(check, transform, keepAst, compactAst, parallel);
+    }
+
+    // Evaluate expressions, remove if clauses and flatten nested stylerules before generating
+    public CompileOptions withTransform(boolean transform) {
+        return new CompileOptions(check, transform, keepAst, compactAst, parallel);
+    }
+
+    // Hand the final AST to the caller in the CompileResult
+    public CompileOptions withKeepAst(boolean keepAst) {
+        return new CompileOptions(check, transform, keepAst, compactAst, parallel);
+    }
+
+    // Hold the stylesheet in a FlatAST and run the passes one top-level element at a time, for stylesheets
+    // too large for the object AST. A kept AST is materialised at the end and has no errors on its nodes.
+    public CompileOptions withCompactAst(boolean compactAst) {
+        return new CompileOptions(check, transform, keepAst, compactAst, parallel);
+    }
+
+    // Spread checking, transforming and generating the top-level rules of a stylesheet over the common ForkJoinPool,
+    // for single large stylesheets. The result is the same as compiling on one thread. Not used with a compact AST.
+    public CompileOptions withParallel(boolean parallel) {
+        return new CompileOptions(check, transform, keepAst, compactAst, parallel);
+    }
+
+    public boolean isCheck() {
+        return check;
+    }
+
+    public boolean isTransform() {
+        return transform;
+    }
+
+    public boolean isKeepAst() {
+        return keepAst;
+    }
+
+    public boolean isCompactAst() {
+        return compactAst;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompileOptions that = (CompileOptions) o;
+        return check == that.check &&
+                transform == that.transform &&
+                keepAst == that.keepAst &&
+                compactAst == that.compactAst &&
+                parallel == that.parallel;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(check, transform, keepAst, compactAst, parallel);
+    }
+
+    @Override
+    public String toString() {
+        return "CompileOptions{" +
+                "check=" + check +
+                ", transform=" + transform +
+                ", keepAst=" + keepAst +
+                ", compactAst=" + compactAst +
+                ", parallel=" + parallel +
+                '}';
+    }
+}
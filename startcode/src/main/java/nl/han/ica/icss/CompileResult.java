@@ -0,0 +1,45 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a single compile: the generated CSS or the errors that prevented it.
+ */
+public final class CompileResult {
+
+    private final String css;
+    private final List<String> errors;
+    private final AST ast;
+
+    CompileResult(String css, List<String> errors, AST ast) {
+        this.css = css;
+        this.errors = Collections.unmodifiableList(errors);
+        this.ast = ast;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @return the generated CSS, or null when compiling failed or the CSS was written straight to a file
+     */
+    public String getCss() {
+        return css;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the final AST when CompileOptions.withKeepAst was set, otherwise null.
+     * The AST belongs to the caller and is not shared with other results.
+     */
+    public AST getAst() {
+        return ast;
+    }
+}
@@ -0,0 +1,202 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.flat.FlatAST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.ParallelChecker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.generator.ParallelGenerator;
+import nl.han.ica.icss.parser.SourceStreams;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.parser.WarmupProfile;
+import nl.han.ica.icss.transforms.FlatTransformer;
+import nl.han.ica.icss.transforms.FusedTransformer;
+import nl.han.ica.icss.transforms.ParallelTransformer;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles ICSS to CSS in one call.
+ * An ICSSCompiler is reentrant: the parser takes a lexer and parser from its pool for every call, the checker is
+ * created per compile, and the parallel checker, the transformers and the generators keep no state between calls.
+ * One instance can therefore serve any number of threads at the same time.
+ */
+public class ICSSCompiler {
+
+    private final StylesheetParser parser = new StylesheetParser();
+    private final ParallelChecker parallelChecker = new ParallelChecker();
+    private final FusedTransformer fusedTransformer = new FusedTransformer();
+    private final ParallelTransformer parallelTransformer = new ParallelTransformer();
+    private final FlatTransformer flatTransformer = new FlatTransformer();
+    private final Generator generator = new Generator();
+    private final ParallelGenerator parallelGenerator = new ParallelGenerator();
+
+    /**
+     * Builds the parser's prediction DFA up front, so the first compile is not slower than the rest.
+     */
+    public void warmUp() {
+        parser.warmUp();
+    }
+
+    /**
+     * Warms up with a profile saved by WarmupProfile.save.
+     *
+     * @return false when the profile does not match the grammar, in which case nothing was warmed up
+     */
+    public boolean warmUp(Path profile) throws IOException {
+        return WarmupProfile.load(profile, parser);
+    }
+
+    public CompileResult compile(CharSequence source) {
+        return compile(source, CompileOptions.DEFAULT);
+    }
+
+    public CompileResult compile(CharSequence source, CompileOptions options) {
+        return compile(CharStreams.fromString(source.toString()), options);
+    }
+
+    /**
+     * Compiles a file. Large ASCII files are memory-mapped instead of read into memory.
+     */
+    public CompileResult compile(Path source, CompileOptions options) throws IOException {
+        return compile(SourceStreams.fromPath(source), options);
+    }
+
+    public CompileResult compile(Reader source, CompileOptions options) throws IOException {
+        return compile(SourceStreams.fromReader(source), options);
+    }
+
+    // UTF-8 encoded input
+    public CompileResult compile(InputStream source, CompileOptions options) throws IOException {
+        return compile(SourceStreams.fromStream(source), options);
+    }
+
+    // UTF-8 encoded input
+    public CompileResult compile(ReadableByteChannel source, CompileOptions options) throws IOException {
+        return compile(SourceStreams.fromChannel(source), options);
+    }
+
+    /**
+     * Compiles a file and streams the CSS straight into the target file, without building it as a String first.
+     * The target is only written when compiling succeeds. The result's getCss() is null, the CSS is in the file.
+     */
+    public CompileResult compile(Path source, Path target, CompileOptions options) throws IOException {
+        List<String> errors = new ArrayList<>();
+        if (options.isCompactAst()) {
+            FlatAST ast = parseAndTransformFlat(SourceStreams.fromPath(source), options, errors);
+            if (errors.isEmpty()) {
+                try (FileChannel channel = open(target)) {
+                    generator.generate(ast, channel);
+                }
+            }
+            return new CompileResult(null, errors, options.isKeepAst() ? ast.toAST() : null);
+        }
+
+        AST ast = parseAndTransform(SourceStreams.fromPath(source), options, errors);
+        if (!errors.isEmpty()) {
+            return failed(errors, ast, options);
+        }
+
+        try (FileChannel channel = open(target)) {
+            if (options.isParallel()) {
+                parallelGenerator.generate(ast, channel);
+            } else {
+                generator.generate(ast, channel);
+            }
+        }
+        return new CompileResult(null, errors, options.isKeepAst() ? ast : null);
+    }
+
+    private static FileChannel open(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private CompileResult compile(CharStream source, CompileOptions options) {
+        List<String> errors = new ArrayList<>();
+        if (options.isCompactAst()) {
+            FlatAST ast = parseAndTransformFlat(source, options, errors);
+            String css = errors.isEmpty() ? generator.generate(ast) : null;
+            return new CompileResult(css, errors, options.isKeepAst() ? ast.toAST() : null);
+        }
+
+        AST ast = parseAndTransform(source, options, errors);
+        if (!errors.isEmpty()) {
+            return failed(errors, ast, options);
+        }
+
+        String css = options.isParallel() ? parallelGenerator.generate(ast) : generator.generate(ast);
+        return new CompileResult(css, errors, options.isKeepAst() ? ast : null);
+    }
+
+    // Everything up to generating; on failure the errors are added and the AST is returned as far as it got
+    private AST parseAndTransform(CharStream source, CompileOptions options, List<String> errors) {
+        AST ast = parser.parse(source, errors);
+        if (!errors.isEmpty()) {
+            return ast;
+        }
+
+        if (options.isCheck()) {
+            ArrayList<SemanticError> semanticErrors;
+            if (options.isParallel()) {
+                semanticErrors = parallelChecker.check(ast);
+            } else {
+                new Checker().check(ast);
+                semanticErrors = ast.getErrors();
+            }
+            for (SemanticError error : semanticErrors) {
+                errors.add(error.toString());
+            }
+            if (!errors.isEmpty()) {
+                return ast;
+            }
+        }
+
+        if (options.isTransform()) {
+            if (options.isParallel()) {
+                parallelTransformer.apply(ast);
+            } else {
+                fusedTransformer.apply(ast);
+            }
+        }
+        return ast;
+    }
+
+    // The same as parseAndTransform, on a FlatAST
+    private FlatAST parseAndTransformFlat(CharStream source, CompileOptions options, List<String> errors) {
+        FlatAST ast = parser.parseFlat(source, errors);
+        if (!errors.isEmpty()) {
+            return ast;
+        }
+
+        if (options.isCheck()) {
+            for (SemanticError error : new Checker().check(ast)) {
+                errors.add(error.toString());
+            }
+            if (!errors.isEmpty()) {
+                return ast;
+            }
+        }
+
+        if (options.isTransform()) {
+            ast = flatTransformer.apply(ast);
+        }
+        return ast;
+    }
+
+    private static CompileResult failed(List<String> errors, AST ast, CompileOptions options) {
+        return new CompileResult(null, errors, options.isKeepAst() ? ast : null);
+    }
+}
@@ -4,25 +4,21 @@ import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.checker.Checker;
 import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
-import nl.han.ica.icss.parser.ASTListener;
-import nl.han.ica.icss.parser.ICSSLexer;
-import nl.han.ica.icss.parser.ICSSParser;
-import nl.han.ica.icss.transforms.EvalExpressions;
-import nl.han.ica.icss.transforms.RemoveIf;
-import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
-
-import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.atn.ATNConfigSet;
-import org.antlr.v4.runtime.dfa.DFA;
-import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.transforms.FusedTransformer;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 
-public class Pipeline implements ANTLRErrorListener {
+/**
+ * Runs the compiler stages one by one and keeps the intermediate AST, as needed by the GUI.
+ * A Pipeline is not thread-safe, use an ICSSCompiler to compile from multiple threads.
+ */
+public class Pipeline {
+
+    private static final StylesheetParser PARSER = new StylesheetParser();
 
     private AST ast;
     private boolean parsed = false;
@@ -51,38 +47,16 @@ public class Pipeline implements ANTLRErrorListener {
     }
 
     public void parseString(String input) {
-
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
         errors.clear();
-        try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
-
-            ParseTree parseTree = parser.stylesheet();
-
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+        this.ast = PARSER.parse(input, errors);
 
-            this.ast = listener.getAST();
-
-        } catch (RecognitionException e) {
-            this.ast = new AST();
-            errors.add(e.getMessage());
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+    public void parseFile(Path path) throws IOException {
+        errors.clear();
+        this.ast = PARSER.parse(path, errors);
 
-        } catch (ParseCancellationException e) {
-            this.ast = new AST();
-            errors.add("Syntax error");
-        }
         parsed = errors.isEmpty();
         checked = transformed = false;
     }
@@ -107,9 +81,7 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new EvalExpressions()).apply(ast);
-        (new RemoveIf()).apply(ast);
-        (new ReplaceNestedStylerule()).apply(ast);
+        (new FusedTransformer()).apply(ast);
 
         transformed = errors.isEmpty();
     }
@@ -121,26 +93,4 @@ public class Pipeline implements ANTLRErrorListener {
     public void clearErrors(){
         errors.clear();
     }
-
-    //Catch ANTLR errors
-    @Override
-    public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
-                                boolean arg4, BitSet arg5, ATNConfigSet arg6) {
-    }
-
-    @Override
-    public void reportAttemptingFullContext(Parser arg0, DFA arg1, int arg2,
-                                            int arg3, BitSet arg4, ATNConfigSet arg5) {
-    }
-
-    @Override
-    public void reportContextSensitivity(Parser arg0, DFA arg1, int arg2,
-                                         int arg3, int arg4, ATNConfigSet arg5) {
-    }
-
-    @Override
-    public void syntaxError(Recognizer<?, ?> arg0, Object arg1, int arg2,
-                            int arg3, String arg4, RecognitionException arg5) {
-        errors.add("Syntax error: " + arg4);
-    }
 }
@@ -7,8 +7,21 @@ import java.util.HashMap;
 import java.util.Objects;
 
 public class AST {
+	//Language features a stylesheet can use, as bits of features
+	public static final int VARIABLES = 1;
+	public static final int OPERATIONS = 2;
+	public static final int IF_CLAUSES = 4;
+	public static final int NESTED_RULES = 8;
+	public static final int ALL_FEATURES = VARIABLES | OPERATIONS | IF_CLAUSES | NESTED_RULES;
+
 	//The root of the tree
 	public Stylesheet root;
+	//The features the stylesheet uses, so transforms can skip what isn't there. Set by the parser; an AST built
+	//any other way claims all of them. A feature may be claimed without being used, never the other way around.
+	public int features = ALL_FEATURES;
+	//Slots needed per scope depth, set by the Resolver when it binds the variable references. Null when not resolved.
+	//Only valid until the AST changes, so the checker and transforms resolve again every time they run.
+	public int[] frameSizes;
 
 	public AST() {
 		root = new Stylesheet();
@@ -19,18 +32,18 @@ public class AST {
 	public void setRoot(Stylesheet stylesheet) {
 		root = stylesheet;
 	}
+	public boolean uses(int feature) {
+		return (features & feature) != 0;
+	}
     public ArrayList<SemanticError> getErrors() {
 	    ArrayList<SemanticError> errors = new ArrayList<>();
-        collectErrors(errors,root);
+	    ASTWalker walker = new ASTWalker(root);
+	    while (walker.next()) {
+	        if (walker.isEnter() && walker.node().hasError()) {
+	            errors.add(walker.node().getError());
+	        }
+	    }
         return errors;
-    }
-    private void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
-	    if(node.hasError()) {
-	        errors.add(node.getError());
-        }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
-        }
     }
 	@Override
 	public String toString() {
@@ -3,7 +3,6 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.List;
 
 public class ASTNode {
 
@@ -17,6 +16,13 @@ public class ASTNode {
         return "ASTNode";
     }
 
+    /*
+     Calls the method of the visitor for the class of this node. Every node class overrides this.
+     */
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitNode(this, context);
+    }
+
     /*
      Different AST nodes use different attributes to store their children.
      This method provides a unified interface.
@@ -24,6 +30,16 @@ public class ASTNode {
     public ArrayList<ASTNode> getChildren() {
         return new ArrayList<>();
     }
+    /*
+     The number of children and the child at an index, in the same order as getChildren.
+     Unlike getChildren these don't allocate a list, so passes over the whole AST should use them.
+     */
+    public int getChildCount() {
+        return 0;
+    }
+    public ASTNode getChild(int index) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName() + " without children");
+    }
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
@@ -37,6 +53,24 @@ public class ASTNode {
     public ASTNode removeChild(ASTNode child) {
         return this;
     }
+    /*
+     Replaces the child at an index, in the same order as getChild. The new child takes the place of the old one,
+     so unlike removeChild followed by addChild this keeps the order of the children and compares nothing.
+     */
+    public ASTNode replaceChildAt(int index, ASTNode child) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName() + " without children");
+    }
+    /*
+     Replaces a child, which is looked up by identity and not by equals.
+     */
+    public ASTNode replaceChild(ASTNode oldChild, ASTNode newChild) {
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            if (getChild(i) == oldChild)
+                return replaceChildAt(i, newChild);
+        }
+        throw new IllegalArgumentException(oldChild.getNodeLabel() + " is not a child of " + getNodeLabel());
+    }
 
     public SemanticError getError() {
         return this.error;
@@ -50,36 +84,71 @@ public class ASTNode {
         return error != null;
     }
 
+    public void clearError() {
+        this.error = null;
+    }
+
 	@Override
 	public String toString() {
-		StringBuilder result = new StringBuilder();
-		toString(result);
-		return result.toString();
-	}
-	private void toString(StringBuilder builder) {
-		builder.append("[");
-		builder.append(getNodeLabel());	
-		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
-		builder.append("]");
+		StringBuilder builder = new StringBuilder();
+		ASTWalker walker = new ASTWalker(this);
+		while (walker.next()) {
+			if (walker.isEnter()) {
+				builder.append("[");
+				builder.append(walker.node().getNodeLabel());
+				builder.append("|");
+			} else {
+				builder.append("]");
+			}
+		}
+		return builder.toString();
 	}
 
+	/*
+	 Two ASTs are equal when they have the same shape, and the nodes at the same place are of the same class
+	 and have equal attributes. Both trees are walked side by side, so deep trees don't overflow the stack.
+	 */
 	@Override
     public boolean equals(Object o) {
+        if (this == o)
+            return true;
         if(! (o instanceof ASTNode))
             return false;
-        //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
-            return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        ASTWalker thisWalker = new ASTWalker(this);
+        ASTWalker otherWalker = new ASTWalker((ASTNode) o);
+        while (thisWalker.next()) {
+            // A different number of children shows as an enter on one side and an exit on the other
+            if (!otherWalker.next() || thisWalker.isEnter() != otherWalker.isEnter())
                 return false;
+            if (thisWalker.isEnter()) {
+                ASTNode thisNode = thisWalker.node();
+                ASTNode otherNode = otherWalker.node();
+                if (thisNode.getClass() != otherNode.getClass() || !thisNode.attributesEqual(otherNode))
+                    return false;
             }
         }
+        return !otherWalker.next();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        ASTWalker walker = new ASTWalker(this);
+        while (walker.next()) {
+            hash = 31 * hash + (walker.isEnter() ? walker.node().attributesHashCode() : 1);
+        }
+        return hash;
+    }
+
+    /*
+     Compares the attributes of a node that are not children, used by equals.
+     The other node is always of the same class.
+     */
+    protected boolean attributesEqual(ASTNode other) {
         return true;
     }
+
+    protected int attributesHashCode() {
+        return getClass().getName().hashCode();
+    }
 }
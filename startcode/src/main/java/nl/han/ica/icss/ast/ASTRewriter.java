@@ -0,0 +1,66 @@
+package nl.han.ica.icss.ast;
+
+/**
+ * Rewrites an AST in place. Every node is offered to a rule, an ASTVisitor that gets the rewriter as context and
+ * returns the node that should take its place:
+ *
+ * <pre>
+ * the node itself    keeps the node, and its children are offered next
+ * another node       puts that node in the old one's place, its children are not offered
+ * </pre>
+ *
+ * A replacement is made with replaceChildAt at the index the walker reached the node by, so it takes constant time,
+ * keeps the order of the children and never compares nodes with equals.
+ * A rewriter reuses its walker, so it is not thread-safe.
+ */
+public final class ASTRewriter {
+
+	private final ASTWalker walker = new ASTWalker(null);
+
+	/**
+	 * @return the root of the rewritten AST, which is the replacement of the root if the rule replaced it
+	 */
+	public ASTNode rewrite(ASTNode root, ASTVisitor<ASTNode, ASTRewriter> rule) {
+		ASTNode result = root;
+		walker.reset(root);
+		while (walker.next()) {
+			if (!walker.isEnter()) {
+				continue;
+			}
+			ASTNode node = walker.node();
+			ASTNode replacement = node.accept(rule, this);
+			if (replacement == node) {
+				continue;
+			}
+			walker.skipChildren();
+			ASTNode parent = walker.parent();
+			if (parent == null) {
+				result = replacement;
+			} else {
+				parent.replaceChildAt(walker.index(), replacement);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the parent of the node offered to the rule, null for the root
+	 */
+	public ASTNode parent() {
+		return walker.parent();
+	}
+
+	/**
+	 * @return the index of the node offered to the rule in its parent's children, -1 for the root
+	 */
+	public int index() {
+		return walker.index();
+	}
+
+	/**
+	 * Keeps the node offered to the rule, but does not offer its children.
+	 */
+	public void skipChildren() {
+		walker.skipChildren();
+	}
+}
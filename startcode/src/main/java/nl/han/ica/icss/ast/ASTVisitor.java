@@ -0,0 +1,114 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.ast.selectors.*;
+
+/**
+ * Visits AST nodes by their class: node.accept(visitor, context) calls the visit method for the node's class.
+ * This replaces a chain of instanceof tests with a single virtual call.
+ *
+ * Every method defaults to the method for the node's superclass, so a visitor only implements the nodes it cares
+ * about: visitAddOperation falls back to visitOperation, then visitExpression, then visitNode, which returns null.
+ *
+ * @param <R> the result of a visit
+ * @param <C> a context passed along with the node, for instance an output to write to
+ */
+public interface ASTVisitor<R, C> {
+
+	default R visitNode(ASTNode node, C context) {
+		return null;
+	}
+
+	default R visitStylesheet(Stylesheet node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitStylerule(Stylerule node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitDeclaration(Declaration node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitPropertyName(PropertyName node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitIfClause(IfClause node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitVariableAssignment(VariableAssignment node, C context) {
+		return visitNode(node, context);
+	}
+
+	// Expressions
+
+	default R visitExpression(Expression node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitVariableReference(VariableReference node, C context) {
+		return visitExpression(node, context);
+	}
+
+	default R visitOperation(Operation node, C context) {
+		return visitExpression(node, context);
+	}
+
+	default R visitAddOperation(AddOperation node, C context) {
+		return visitOperation(node, context);
+	}
+
+	default R visitSubtractOperation(SubtractOperation node, C context) {
+		return visitOperation(node, context);
+	}
+
+	default R visitMultiplyOperation(MultiplyOperation node, C context) {
+		return visitOperation(node, context);
+	}
+
+	default R visitLiteral(Literal node, C context) {
+		return visitExpression(node, context);
+	}
+
+	default R visitBoolLiteral(BoolLiteral node, C context) {
+		return visitLiteral(node, context);
+	}
+
+	default R visitColorLiteral(ColorLiteral node, C context) {
+		return visitLiteral(node, context);
+	}
+
+	default R visitPercentageLiteral(PercentageLiteral node, C context) {
+		return visitLiteral(node, context);
+	}
+
+	default R visitPixelLiteral(PixelLiteral node, C context) {
+		return visitLiteral(node, context);
+	}
+
+	default R visitScalarLiteral(ScalarLiteral node, C context) {
+		return visitLiteral(node, context);
+	}
+
+	// Selectors
+
+	default R visitSelector(Selector node, C context) {
+		return visitNode(node, context);
+	}
+
+	default R visitClassSelector(ClassSelector node, C context) {
+		return visitSelector(node, context);
+	}
+
+	default R visitIdSelector(IdSelector node, C context) {
+		return visitSelector(node, context);
+	}
+
+	default R visitTagSelector(TagSelector node, C context) {
+		return visitSelector(node, context);
+	}
+}
@@ -0,0 +1,137 @@
+package nl.han.ica.icss.ast;
+
+/**
+ * Walks an AST depth-first with an explicit stack instead of recursion, so how deeply an AST can be nested
+ * is bounded by the heap and not by the size of the thread's stack.
+ *
+ * Every node is reported twice: once when it is entered, before its children, and once when it is exited,
+ * after its children. A typical walk looks like:
+ *
+ * <pre>
+ * ASTWalker walker = new ASTWalker(root);
+ * while (walker.next()) {
+ *     if (walker.isEnter()) { ... } else { ... }
+ * }
+ * </pre>
+ *
+ * Children are read one at a time with getChildCount and getChild, so walking allocates nothing per node.
+ * A pass may change a node's children while the node is being entered, and may replace the current node
+ * in its parent. Other changes to the children of a node that is being walked can make the walker skip or
+ * repeat a child.
+ */
+public final class ASTWalker {
+
+	private ASTNode root;
+	private ASTNode[] nodes = new ASTNode[16];
+	private int[] nextChild = new int[16];
+	private int size = 0;
+	private boolean enter = false;
+	private boolean skipChildren = false;
+
+	public ASTWalker(ASTNode root) {
+		this.root = root;
+	}
+
+	/**
+	 * Starts a new walk from the given root, reusing the walker's stack.
+	 */
+	public void reset(ASTNode root) {
+		while (size > 0) {
+			pop();
+		}
+		this.root = root;
+		enter = false;
+		skipChildren = false;
+	}
+
+	/**
+	 * Moves to the next event.
+	 *
+	 * @return false when the walk is done
+	 */
+	public boolean next() {
+		if (root != null) {
+			push(root);
+			root = null;
+			return true;
+		}
+		if (size == 0) {
+			return false;
+		}
+		if (enter) {
+			nextChild[size - 1] = skipChildren ? Integer.MAX_VALUE : 0;
+		} else {
+			pop();
+			if (size == 0) {
+				return false;
+			}
+		}
+
+		int top = size - 1;
+		if (nextChild[top] < nodes[top].getChildCount()) {
+			push(nodes[top].getChild(nextChild[top]++));
+		} else {
+			enter = false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true when the current node is being entered, false when it is being exited
+	 */
+	public boolean isEnter() {
+		return enter;
+	}
+
+	public ASTNode node() {
+		return nodes[size - 1];
+	}
+
+	/**
+	 * @return the node the current node was reached from, null for the root
+	 */
+	public ASTNode parent() {
+		return size > 1 ? nodes[size - 2] : null;
+	}
+
+	/**
+	 * @return the number of ancestors of the current node, 0 for the root
+	 */
+	public int depth() {
+		return size - 1;
+	}
+
+	/**
+	 * @return the index of the current node in its parent's children, -1 for the root
+	 */
+	public int index() {
+		return size > 1 ? nextChild[size - 2] - 1 : -1;
+	}
+
+	/**
+	 * Does not visit the children of the node that is being entered. Its exit event is still reported.
+	 */
+	public void skipChildren() {
+		skipChildren = true;
+	}
+
+	private void push(ASTNode node) {
+		if (size == nodes.length) {
+			int capacity = size * 2;
+			ASTNode[] grownNodes = new ASTNode[capacity];
+			int[] grownNextChild = new int[capacity];
+			System.arraycopy(nodes, 0, grownNodes, 0, size);
+			System.arraycopy(nextChild, 0, grownNextChild, 0, size);
+			nodes = grownNodes;
+			nextChild = grownNextChild;
+		}
+		nodes[size++] = node;
+		enter = true;
+		skipChildren = false;
+	}
+
+	private void pop() {
+		size--;
+		nodes[size] = null;
+	}
+}
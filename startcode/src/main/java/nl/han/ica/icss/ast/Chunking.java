@@ -0,0 +1,40 @@
+package nl.han.ica.icss.ast;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * How the top-level elements of a stylesheet are split into chunks, to check, transform or generate them
+ * on the threads of a ForkJoinPool.
+ * A stylesheet is split into about four chunks per thread, so threads that are done early can steal work,
+ * but never into chunks smaller than minChunk elements, as smaller ones are not worth the forking.
+ */
+public final class Chunking {
+
+	private static final int MIN_CHUNK = 16;
+
+	private final ForkJoinPool pool;
+	private final int minChunk;
+
+	public Chunking() {
+		this(ForkJoinPool.commonPool(), MIN_CHUNK);
+	}
+
+	/**
+	 * @param minChunk the number of top-level elements below which a chunk is not split further
+	 */
+	public Chunking(ForkJoinPool pool, int minChunk) {
+		this.pool = pool;
+		this.minChunk = Math.max(1, minChunk);
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @return the number of elements per chunk; a stylesheet with no more elements than that is not split
+	 */
+	public int chunkSize(int elements) {
+		return Math.max(minChunk, elements / (pool.getParallelism() * 4));
+	}
+}
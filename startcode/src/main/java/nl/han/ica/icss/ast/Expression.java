@@ -1,3 +1,9 @@
 package nl.han.ica.icss.ast;
 
-public abstract class Expression extends ASTNode { }
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+public abstract class Expression extends ASTNode {
+
+    // Set by the Checker. UNDEFINED for an invalid operation, null for an undefined variable.
+    public ExpressionType expressionType;
+}
@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 public class IfClause extends ASTNode {
 
@@ -21,6 +20,11 @@ public class IfClause extends ASTNode {
     public String getNodeLabel() {
         return "If_Clause";
     }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitIfClause(this, context);
+    }
     @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
@@ -29,6 +33,14 @@ public class IfClause extends ASTNode {
 
         return children;
     }
+    @Override
+    public int getChildCount() {
+        return 1 + body.size();
+    }
+    @Override
+    public ASTNode getChild(int index) {
+        return index == 0 ? conditionalExpression : body.get(index - 1);
+    }
 
     @Override
     public ASTNode addChild(ASTNode child) {
@@ -39,19 +51,14 @@ public class IfClause extends ASTNode {
 
         return this;
     }
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        IfClause ifClause = (IfClause) o;
-        return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                Objects.equals(body, ifClause.body);
-    }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body);
+    public ASTNode replaceChildAt(int index, ASTNode child) {
+        if (index == 0)
+            conditionalExpression = (Expression) child;
+        else
+            body.set(index - 1, child);
+        return this;
     }
 
     public Expression getConditionalExpression() {
@@ -17,6 +17,31 @@ public abstract class Operation extends Expression {
         return children;
     }
 
+    @Override
+    public int getChildCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if(index == 0 && lhs != null)
+            return lhs;
+        if(index == (lhs != null ? 1 : 0) && rhs != null)
+            return rhs;
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName());
+    }
+
+    @Override
+    public ASTNode replaceChildAt(int index, ASTNode child) {
+        if(index == 0 && lhs != null)
+            lhs = (Expression) child;
+        else if(index == (lhs != null ? 1 : 0) && rhs != null)
+            rhs = (Expression) child;
+        else
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName());
+        return this;
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
         if(lhs == null) {
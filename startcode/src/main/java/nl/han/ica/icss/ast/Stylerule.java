@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 public class Stylerule extends ASTNode {
 
@@ -30,6 +29,11 @@ public class Stylerule extends ASTNode {
 	public String getNodeLabel() {
 		return "Stylerule";
 	}
+
+	@Override
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitStylerule(this, context);
+	}
 	@Override
 	public ArrayList<ASTNode> getChildren() {
 		ArrayList<ASTNode> children = new ArrayList<>();
@@ -39,6 +43,19 @@ public class Stylerule extends ASTNode {
 
 		return children;
 	}
+	@Override
+	public int getChildCount() {
+		return selectors.size() + body.size() + parentSelectors.size();
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		if (index < selectors.size())
+			return selectors.get(index);
+		index -= selectors.size();
+		if (index < body.size())
+			return body.get(index);
+		return parentSelectors.get(index - body.size());
+	}
 
 	// Added for EU02
 	public ASTNode addParentSelector(Selector parent) {
@@ -58,23 +75,22 @@ public class Stylerule extends ASTNode {
 	}
 
 	@Override
-	public ASTNode removeChild(ASTNode child) {
-		body.remove(child);
+	public ASTNode replaceChildAt(int index, ASTNode child) {
+		if (index < selectors.size()) {
+			selectors.set(index, (Selector) child);
+			return this;
+		}
+		index -= selectors.size();
+		if (index < body.size())
+			body.set(index, child);
+		else
+			parentSelectors.set(index - body.size(), (Selector) child);
 		return this;
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Stylerule stylerule = (Stylerule) o;
-		return Objects.equals(selectors, stylerule.selectors) &&
-				Objects.equals(body, stylerule.body);
-	}
-
-	@Override
-	public int hashCode() {
-		return Objects.hash(selectors, body);
+	public ASTNode removeChild(ASTNode child) {
+		body.remove(child);
+		return this;
 	}
 }
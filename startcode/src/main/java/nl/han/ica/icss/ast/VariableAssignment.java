@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /**
  * An assignment binds a expression to an identifier.
@@ -17,6 +16,11 @@ public class VariableAssignment extends ASTNode {
 		return "VariableAssignment (" + name.name + ")";
 	}
 
+	@Override
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitVariableAssignment(this, context);
+	}
+
 	@Override
 	public ASTNode addChild(ASTNode child) {
 		if(name == null) {
@@ -38,19 +42,26 @@ public class VariableAssignment extends ASTNode {
 			children.add(expression);
 		return children;
 	}
-
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableAssignment that = (VariableAssignment) o;
-		return Objects.equals(name, that.name) &&
-				Objects.equals(expression, that.expression);
+	public int getChildCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
 	}
-
 	@Override
-	public int hashCode() {
-		return Objects.hash(name, expression);
+	public ASTNode getChild(int index) {
+		if(index == 0 && name != null)
+			return name;
+		if(index == (name != null ? 1 : 0) && expression != null)
+			return expression;
+		throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName());
+	}
+	@Override
+	public ASTNode replaceChildAt(int index, ASTNode child) {
+		if(index == 0 && name != null)
+			name = (VariableReference) child;
+		else if(index == (name != null ? 1 : 0) && expression != null)
+			expression = (Expression) child;
+		else
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + getClass().getSimpleName());
+		return this;
 	}
 }
@@ -5,7 +5,11 @@ import java.util.Objects;
 public class VariableReference extends Expression {
 
 	public String name;
-	
+
+	// Set by the Resolver: the scope depth and slot of the variable, -1 when it is not defined
+	public int scopeDepth = -1;
+	public int slot = -1;
+
 	public VariableReference(String name) {
 		super();
 		this.name = name;
@@ -17,16 +21,18 @@ public class VariableReference extends Expression {
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableReference that = (VariableReference) o;
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitVariableReference(this, context);
+	}
+
+	@Override
+	protected boolean attributesEqual(ASTNode other) {
+		VariableReference that = (VariableReference) other;
 		return Objects.equals(name, that.name);
 	}
 
 	@Override
-	public int hashCode() {
+	protected int attributesHashCode() {
 
 		return Objects.hash(name);
 	}
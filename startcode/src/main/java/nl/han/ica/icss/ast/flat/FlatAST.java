@@ -0,0 +1,454 @@
+package nl.han.ica.icss.ast.flat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.ast.selectors.*;
+
+/**
+ * A compact AST for stylesheets too large to hold as objects. Nodes are numbered and stored in parallel
+ * primitive arrays: a kind, the parent, the first child and next sibling, and a payload. The payload is the
+ * value of a numeric or boolean literal, or for nodes with a name or text the index of that string in a table
+ * in which every distinct string is stored once. A node costs 21 bytes, where the object AST needs
+ * one object per node plus an ArrayList per container.
+ *
+ * A FlatAST is built once, by a parser or with addTree, and then read. The passes that work on ASTNodes
+ * materialise one top-level element at a time with toNode; see Checker.check(FlatAST), FlatTransformer and
+ * Generator.generate(FlatAST, ...).
+ *
+ * The parent selectors of a Stylerule are the children of a PARENT_SELECTORS node, the rule's last child.
+ */
+public final class FlatAST {
+
+	public static final int NONE = -1;
+
+	public static final byte STYLESHEET = 0;
+	public static final byte STYLERULE = 1;
+	public static final byte PARENT_SELECTORS = 2;
+	public static final byte DECLARATION = 3;
+	public static final byte PROPERTY_NAME = 4;
+	public static final byte IF_CLAUSE = 5;
+	public static final byte VARIABLE_ASSIGNMENT = 6;
+	public static final byte VARIABLE_REFERENCE = 7;
+	public static final byte ADD_OPERATION = 8;
+	public static final byte SUBTRACT_OPERATION = 9;
+	public static final byte MULTIPLY_OPERATION = 10;
+	public static final byte BOOL_LITERAL = 11;
+	public static final byte COLOR_LITERAL = 12;
+	public static final byte PERCENTAGE_LITERAL = 13;
+	public static final byte PIXEL_LITERAL = 14;
+	public static final byte SCALAR_LITERAL = 15;
+	public static final byte CLASS_SELECTOR = 16;
+	public static final byte ID_SELECTOR = 17;
+	public static final byte TAG_SELECTOR = 18;
+
+	private static final Kinds KINDS = new Kinds();
+
+	private byte[] kinds;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] lastChildren;
+	private int[] nextSiblings;
+	private int[] payloads;
+	private int size = 0;
+	private int root = NONE;
+
+	private String[] strings = new String[16];
+	private int stringCount = 0;
+	private final HashMap<String, Integer> stringIndex = new HashMap<>();
+
+	public FlatAST() {
+		this(64);
+	}
+
+	public FlatAST(int capacity) {
+		capacity = Math.max(capacity, 1);
+		kinds = new byte[capacity];
+		parents = new int[capacity];
+		firstChildren = new int[capacity];
+		lastChildren = new int[capacity];
+		nextSiblings = new int[capacity];
+		payloads = new int[capacity];
+	}
+
+	/**
+	 * Adds a node without parent or children.
+	 *
+	 * @return the new node
+	 */
+	public int add(byte kind, int payload) {
+		if (size == kinds.length) {
+			grow(size * 2);
+		}
+		kinds[size] = kind;
+		parents[size] = NONE;
+		firstChildren[size] = NONE;
+		lastChildren[size] = NONE;
+		nextSiblings[size] = NONE;
+		payloads[size] = payload;
+		return size++;
+	}
+
+	// Adds a node whose payload is a string
+	public int add(byte kind, String text) {
+		return add(kind, intern(text));
+	}
+
+	// Makes child, a node without parent, the last child of parent
+	public void appendChild(int parent, int child) {
+		parents[child] = parent;
+		if (lastChildren[parent] == NONE) {
+			firstChildren[parent] = child;
+		} else {
+			nextSiblings[lastChildren[parent]] = child;
+		}
+		lastChildren[parent] = child;
+	}
+
+	/**
+	 * @return the index of the string in the string table, which is added when it is not in there yet
+	 */
+	public int intern(String text) {
+		Integer index = stringIndex.get(text);
+		if (index != null) {
+			return index;
+		}
+		if (stringCount == strings.length) {
+			String[] grown = new String[stringCount * 2];
+			System.arraycopy(strings, 0, grown, 0, stringCount);
+			strings = grown;
+		}
+		strings[stringCount] = text;
+		stringIndex.put(text, stringCount);
+		return stringCount++;
+	}
+
+	/**
+	 * Releases the unused capacity of the node arrays, for a FlatAST that is done growing.
+	 */
+	public void trimToSize() {
+		if (size < kinds.length) {
+			grow(Math.max(size, 1));
+		}
+	}
+
+	private void grow(int capacity) {
+		kinds = copyOf(kinds, capacity);
+		parents = copyOf(parents, capacity);
+		firstChildren = copyOf(firstChildren, capacity);
+		lastChildren = copyOf(lastChildren, capacity);
+		nextSiblings = copyOf(nextSiblings, capacity);
+		payloads = copyOf(payloads, capacity);
+	}
+
+	private byte[] copyOf(byte[] array, int capacity) {
+		byte[] copy = new byte[capacity];
+		System.arraycopy(array, 0, copy, 0, size);
+		return copy;
+	}
+
+	private int[] copyOf(int[] array, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(array, 0, copy, 0, size);
+		return copy;
+	}
+
+	public int root() {
+		return root;
+	}
+
+	public void setRoot(int root) {
+		this.root = root;
+	}
+
+	// The number of nodes
+	public int size() {
+		return size;
+	}
+
+	// The number of distinct strings
+	public int stringCount() {
+		return stringCount;
+	}
+
+	public byte kind(int node) {
+		return kinds[node];
+	}
+
+	public int parent(int node) {
+		return parents[node];
+	}
+
+	public int firstChild(int node) {
+		return firstChildren[node];
+	}
+
+	public int nextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	public int payload(int node) {
+		return payloads[node];
+	}
+
+	// The name or text of a node whose payload is a string
+	public String text(int node) {
+		return strings[payloads[node]];
+	}
+
+	/**
+	 * Materialises a node and everything below it as ASTNodes.
+	 */
+	public ASTNode toNode(int node) {
+		// The objects created for the current node and its ancestors, up to the given node
+		ArrayList<ASTNode> path = new ArrayList<>();
+		int current = node;
+		while (true) {
+			ASTNode created = create(current);
+			if (created != null && !path.isEmpty()) {
+				attach(path, created);
+			}
+			path.add(created);
+
+			if (firstChildren[current] != NONE) {
+				current = firstChildren[current];
+				continue;
+			}
+			// Climb to the first ancestor with a next sibling
+			while (current != node && nextSiblings[current] == NONE) {
+				current = parents[current];
+				path.remove(path.size() - 1);
+			}
+			if (current == node) {
+				return path.get(0);
+			}
+			path.remove(path.size() - 1);
+			current = nextSiblings[current];
+		}
+	}
+
+	private static void attach(ArrayList<ASTNode> path, ASTNode child) {
+		ASTNode parent = path.get(path.size() - 1);
+		if (parent == null) {
+			// A PARENT_SELECTORS node has no object of its own, its selectors go to the rule above it
+			((Stylerule) path.get(path.size() - 2)).addParentSelector((Selector) child);
+		} else {
+			parent.addChild(child);
+		}
+	}
+
+	// The node without its children, null for a PARENT_SELECTORS node
+	private ASTNode create(int node) {
+		int payload = payloads[node];
+		switch (kinds[node]) {
+			case STYLESHEET: return new Stylesheet();
+			case STYLERULE: return new Stylerule();
+			case PARENT_SELECTORS: return null;
+			case DECLARATION: return new Declaration();
+			case PROPERTY_NAME: return new PropertyName(strings[payload]);
+			case IF_CLAUSE: return new IfClause();
+			case VARIABLE_ASSIGNMENT: return new VariableAssignment();
+			case VARIABLE_REFERENCE: return new VariableReference(strings[payload]);
+			case ADD_OPERATION: return new AddOperation();
+			case SUBTRACT_OPERATION: return new SubtractOperation();
+			case MULTIPLY_OPERATION: return new MultiplyOperation();
+			case BOOL_LITERAL: return new BoolLiteral(payload != 0);
+			case COLOR_LITERAL: return new ColorLiteral(strings[payload]);
+			case PERCENTAGE_LITERAL: return new PercentageLiteral(payload);
+			case PIXEL_LITERAL: return new PixelLiteral(payload);
+			case SCALAR_LITERAL: return new ScalarLiteral(payload);
+			case CLASS_SELECTOR: return new ClassSelector(strings[payload]);
+			case ID_SELECTOR: return new IdSelector(strings[payload]);
+			case TAG_SELECTOR: return new TagSelector(strings[payload]);
+			default: throw new IllegalStateException("Unknown node kind " + kinds[node]);
+		}
+	}
+
+	/**
+	 * Materialises the whole stylesheet.
+	 */
+	public AST toAST() {
+		if (root == NONE) {
+			return new AST();
+		}
+		return new AST((Stylesheet) toNode(root));
+	}
+
+	/**
+	 * Adds a copy of an ASTNode and everything below it. Errors and variable bindings are not copied.
+	 *
+	 * @return the copy of the node, without parent
+	 */
+	public int addTree(ASTNode node) {
+		// The copies of the current node's ancestors, by depth
+		int[] copies = new int[16];
+		ASTWalker walker = new ASTWalker(node);
+		while (walker.next()) {
+			if (!walker.isEnter()) {
+				continue;
+			}
+			ASTNode current = walker.node();
+			byte kind = current.accept(KINDS, null);
+			int copy = add(kind, payloadOf(kind, current));
+
+			int depth = walker.depth();
+			if (depth > 0) {
+				int parent = copies[depth - 1];
+				if (walker.parent() instanceof Stylerule && isParentSelector((Stylerule) walker.parent(), walker.index())) {
+					parent = parentSelectorsOf(parent);
+				}
+				appendChild(parent, copy);
+			}
+			if (depth == copies.length) {
+				int[] grown = new int[depth * 2];
+				System.arraycopy(copies, 0, grown, 0, depth);
+				copies = grown;
+			}
+			copies[depth] = copy;
+		}
+		return copies[0];
+	}
+
+	private static boolean isParentSelector(Stylerule stylerule, int index) {
+		return index >= stylerule.selectors.size() + stylerule.body.size();
+	}
+
+	// The PARENT_SELECTORS node of a rule, added when the rule does not have one yet
+	private int parentSelectorsOf(int stylerule) {
+		int last = lastChildren[stylerule];
+		if (last != NONE && kinds[last] == PARENT_SELECTORS) {
+			return last;
+		}
+		int parentSelectors = add(PARENT_SELECTORS, 0);
+		appendChild(stylerule, parentSelectors);
+		return parentSelectors;
+	}
+
+	private int payloadOf(byte kind, ASTNode node) {
+		switch (kind) {
+			case PROPERTY_NAME: return intern(((PropertyName) node).name);
+			case VARIABLE_REFERENCE: return intern(((VariableReference) node).name);
+			case BOOL_LITERAL: return ((BoolLiteral) node).value ? 1 : 0;
+			case COLOR_LITERAL: return intern(((ColorLiteral) node).value);
+			case PERCENTAGE_LITERAL: return ((PercentageLiteral) node).value;
+			case PIXEL_LITERAL: return ((PixelLiteral) node).value;
+			case SCALAR_LITERAL: return ((ScalarLiteral) node).value;
+			case CLASS_SELECTOR: return intern(((ClassSelector) node).cls);
+			case ID_SELECTOR: return intern(((IdSelector) node).id);
+			case TAG_SELECTOR: return intern(((TagSelector) node).tag);
+			default: return 0;
+		}
+	}
+
+	/**
+	 * Copies an AST into a new FlatAST.
+	 */
+	public static FlatAST of(AST ast) {
+		FlatAST flat = new FlatAST();
+		flat.setRoot(flat.addTree(ast.root));
+		flat.trimToSize();
+		return flat;
+	}
+
+	// The kind of every node class
+	private static class Kinds implements ASTVisitor<Byte, Void> {
+
+		@Override
+		public Byte visitNode(ASTNode node, Void context) {
+			throw new IllegalArgumentException("No node kind for " + node.getClass().getSimpleName());
+		}
+
+		@Override
+		public Byte visitStylesheet(Stylesheet node, Void context) {
+			return STYLESHEET;
+		}
+
+		@Override
+		public Byte visitStylerule(Stylerule node, Void context) {
+			return STYLERULE;
+		}
+
+		@Override
+		public Byte visitDeclaration(Declaration node, Void context) {
+			return DECLARATION;
+		}
+
+		@Override
+		public Byte visitPropertyName(PropertyName node, Void context) {
+			return PROPERTY_NAME;
+		}
+
+		@Override
+		public Byte visitIfClause(IfClause node, Void context) {
+			return IF_CLAUSE;
+		}
+
+		@Override
+		public Byte visitVariableAssignment(VariableAssignment node, Void context) {
+			return VARIABLE_ASSIGNMENT;
+		}
+
+		@Override
+		public Byte visitVariableReference(VariableReference node, Void context) {
+			return VARIABLE_REFERENCE;
+		}
+
+		@Override
+		public Byte visitAddOperation(AddOperation node, Void context) {
+			return ADD_OPERATION;
+		}
+
+		@Override
+		public Byte visitSubtractOperation(SubtractOperation node, Void context) {
+			return SUBTRACT_OPERATION;
+		}
+
+		@Override
+		public Byte visitMultiplyOperation(MultiplyOperation node, Void context) {
+			return MULTIPLY_OPERATION;
+		}
+
+		@Override
+		public Byte visitBoolLiteral(BoolLiteral node, Void context) {
+			return BOOL_LITERAL;
+		}
+
+		@Override
+		public Byte visitColorLiteral(ColorLiteral node, Void context) {
+			return COLOR_LITERAL;
+		}
+
+		@Override
+		public Byte visitPercentageLiteral(PercentageLiteral node, Void context) {
+			return PERCENTAGE_LITERAL;
+		}
+
+		@Override
+		public Byte visitPixelLiteral(PixelLiteral node, Void context) {
+			return PIXEL_LITERAL;
+		}
+
+		@Override
+		public Byte visitScalarLiteral(ScalarLiteral node, Void context) {
+			return SCALAR_LITERAL;
+		}
+
+		@Override
+		public Byte visitClassSelector(ClassSelector node, Void context) {
+			return CLASS_SELECTOR;
+		}
+
+		@Override
+		public Byte visitIdSelector(IdSelector node, Void context) {
+			return ID_SELECTOR;
+		}
+
+		@Override
+		public Byte visitTagSelector(TagSelector node, Void context) {
+			return TAG_SELECTOR;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 
 import java.util.Objects;
@@ -20,16 +22,18 @@ public class BoolLiteral extends Literal {
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        BoolLiteral that = (BoolLiteral) o;
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitBoolLiteral(this, context);
+    }
+
+    @Override
+    protected boolean attributesEqual(ASTNode other) {
+        BoolLiteral that = (BoolLiteral) other;
         return value == that.value;
     }
 
     @Override
-    public int hashCode() {
+    protected int attributesHashCode() {
         return Objects.hash(value);
     }
 }
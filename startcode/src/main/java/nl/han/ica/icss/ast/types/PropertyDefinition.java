@@ -0,0 +1,50 @@
+package nl.han.ica.icss.ast.types;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What the compiler knows about a CSS property: the types of value it accepts, and how the generator writes it.
+ * Definitions are immutable and registered in a PropertyRegistry.
+ */
+public final class PropertyDefinition {
+
+    private final String name;
+    private final Set<ExpressionType> allowedTypes;
+    private final String cssName;
+
+    public PropertyDefinition(String name, Set<ExpressionType> allowedTypes) {
+        this(name, allowedTypes, name);
+    }
+
+    /**
+     * @param cssName the name the generator writes, for a property that is an alias in ICSS
+     */
+    public PropertyDefinition(String name, Set<ExpressionType> allowedTypes, String cssName) {
+        this.name = name;
+        this.allowedTypes = Collections.unmodifiableSet(EnumSet.copyOf(allowedTypes));
+        this.cssName = cssName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<ExpressionType> getAllowedTypes() {
+        return allowedTypes;
+    }
+
+    public boolean allows(ExpressionType type) {
+        return allowedTypes.contains(type);
+    }
+
+    public String getCssName() {
+        return cssName;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + allowedTypes;
+    }
+}
@@ -0,0 +1,62 @@
+package nl.han.ica.icss.ast.types;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The properties a stylesheet may declare, by name.
+ * The grammar accepts any lower case identifier as a property; the checker looks the name up here to validate
+ * the declaration and the generator to write it. Properties can be registered at any time, so supporting
+ * another CSS property does not need a change to the grammar.
+ *
+ * The parser interns property names through the registry, so all declarations of a property share the
+ * registered name and its hash code is only computed once.
+ * A registry is thread-safe.
+ */
+public class PropertyRegistry {
+
+    /**
+     * The registry used when none is given: the properties of ICSS.
+     */
+    public static final PropertyRegistry DEFAULT = createDefault();
+
+    private final ConcurrentHashMap<String, PropertyDefinition> definitions = new ConcurrentHashMap<>();
+
+    private static PropertyRegistry createDefault() {
+        PropertyRegistry registry = new PropertyRegistry();
+        // A size can be given by any value except a color
+        Set<ExpressionType> size = EnumSet.complementOf(EnumSet.of(ExpressionType.COLOR));
+        registry.register(new PropertyDefinition("width", size));
+        registry.register(new PropertyDefinition("height", size));
+        registry.register(new PropertyDefinition("color", EnumSet.of(ExpressionType.COLOR)));
+        registry.register(new PropertyDefinition("background-color", EnumSet.of(ExpressionType.COLOR)));
+        return registry;
+    }
+
+    /**
+     * Adds a property, or replaces the definition of a property with the same name.
+     */
+    public void register(PropertyDefinition definition) {
+        definitions.put(definition.getName(), definition);
+    }
+
+    /**
+     * @return the definition of the property, null for an unknown property
+     */
+    public PropertyDefinition get(String name) {
+        return definitions.get(name);
+    }
+
+    public boolean contains(String name) {
+        return definitions.containsKey(name);
+    }
+
+    /**
+     * @return the registered instance of the name, or the name itself for an unknown property
+     */
+    public String intern(String name) {
+        PropertyDefinition definition = definitions.get(name);
+        return definition != null ? definition.getName() : name;
+    }
+}
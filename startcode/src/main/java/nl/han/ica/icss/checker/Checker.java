@@ -2,9 +2,10 @@ package nl.han.ica.icss.checker;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Map;
 
 import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.flat.FlatAST;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
 import nl.han.ica.icss.ast.literals.ColorLiteral;
 import nl.han.ica.icss.ast.literals.PercentageLiteral;
@@ -17,171 +18,292 @@ import nl.han.ica.icss.ast.types.*;
 
 public class Checker {
 
-    // This is a map of all the variables.
-    // The global variables will be first, followed by scoped variables.
-    // So index 0 variables are global and index 5 variables would be really specificly scoped variables.
-    // Scoped variables get removed after an scope is exited.
-    private LinkedList<HashMap<String,ExpressionType>> variableTypes;
+    // The types of all variables, indexed by the scope depth and slot the Resolver bound them to.
+    // Index 0 holds the global variables, deeper scopes reuse their array for every stylerule or if clause.
+    private ExpressionType[][] variableTypes;
+
+    private final NodeChecker nodeChecker = new NodeChecker();
+    private final ExpressionTyper expressionTyper = new ExpressionTyper();
+    private final PropertyRegistry properties;
+
+    public Checker() {
+        this(PropertyRegistry.DEFAULT);
+    }
+
+    /**
+     * @param properties the properties declarations are checked against
+     */
+    public Checker(PropertyRegistry properties) {
+        this.properties = properties;
+    }
 
     public void check(AST ast) {
-        variableTypes = new LinkedList<>();
-        // Add global scope
-        variableTypes.add(new HashMap<String,ExpressionType>());
+        // Resolved on every check, the AST may have changed since the last one
+        new Resolver().resolve(ast);
+        variableTypes = createFrames(ast.frameSizes);
 
         checkNode(ast.root);
     }
 
-    private void checkNode(ASTNode node) {
-        if (node instanceof Stylerule | node instanceof IfClause) {
-            // Add local scope
-            variableTypes.add(new HashMap<String, ExpressionType>());
+    /**
+     * Checks a FlatAST one top-level element at a time, so only a single element is held as objects.
+     * The result is the same as checking the whole AST at once.
+     *
+     * @return the errors, in document order
+     */
+    public ArrayList<SemanticError> check(FlatAST ast) {
+        ArrayList<SemanticError> errors = new ArrayList<>();
+        if (ast.root() == FlatAST.NONE) {
+            return errors;
         }
+        HashMap<String, ExpressionType> globalTypes = new HashMap<>();
+        for (int element = ast.firstChild(ast.root()); element != FlatAST.NONE; element = ast.nextSibling(element)) {
+            ASTNode node = ast.toNode(element);
+            check(node, globalTypes);
 
-        // Checker logic
-        checkNodeForErrors(node);
+            ASTWalker walker = new ASTWalker(node);
+            while (walker.next()) {
+                if (walker.isEnter() && walker.node().hasError()) {
+                    errors.add(walker.node().getError());
+                }
+            }
+        }
+        return errors;
+    }
 
-        // Base case
-        ArrayList<ASTNode> nodeChildren = node.getChildren();
-        if (nodeChildren.size() == 0) {
-            return;
+    // Checks a single top-level element against the global variables assigned before it.
+    // Global variables assigned by the element itself are added to globalTypes.
+    void check(ASTNode element, HashMap<String, ExpressionType> globalTypes) {
+        Resolver resolver = new Resolver(globalTypes.keySet());
+        variableTypes = createFrames(resolver.resolve(element));
+        HashMap<String, Integer> globalSlots = resolver.getGlobalSlots();
+        for (Map.Entry<String, Integer> global : globalSlots.entrySet()) {
+            variableTypes[0][global.getValue()] = globalTypes.get(global.getKey());
         }
 
-        // Recursion
-        for (ASTNode childNode : nodeChildren) {
-            checkNode(childNode);
+        checkNode(element);
+
+        if (element instanceof VariableAssignment) {
+            VariableReference name = ((VariableAssignment) element).name;
+            globalTypes.put(name.name, variableTypes[0][name.slot]);
         }
+    }
+
+    // Empty frames for a resolved AST, after which its elements can be checked one by one with checkNode
+    void prepare(AST ast) {
+        variableTypes = createFrames(ast.frameSizes);
+    }
 
-        if (node instanceof Stylerule | node instanceof IfClause) {
-            // Remove local scope
-            variableTypes.removeLast();
+    // The types of the global variables, which checking an assignment stores in this array
+    ExpressionType[] getGlobals() {
+        return variableTypes[0];
+    }
+
+    // Checks with other types for the global variables. Only rules may be checked, as they never assign globals,
+    // so the array can be shared with other checkers.
+    void setGlobals(ExpressionType[] globals) {
+        variableTypes[0] = globals;
+    }
+
+    private static ExpressionType[][] createFrames(int[] frameSizes) {
+        ExpressionType[][] frames = new ExpressionType[frameSizes.length][];
+        for (int depth = 0; depth < frameSizes.length; depth++) {
+            frames[depth] = new ExpressionType[frameSizes[depth]];
+        }
+        return frames;
+    }
+
+    void checkNode(ASTNode node) {
+        ASTWalker walker = new ASTWalker(node);
+        while (walker.next()) {
+            if (walker.isEnter()) {
+                walker.node().accept(nodeChecker, null);
+            }
         }
     }
 
-    private void checkNodeForErrors(ASTNode node) {
+    private class NodeChecker implements ASTVisitor<Void, Void> {
+
         // Add new variable assignment to current scope
-        if (node instanceof VariableAssignment) {
-            VariableAssignment variableAssignment = (VariableAssignment) node;
-            variableTypes.getLast().put(variableAssignment.name.name, getExpressionType(variableAssignment.expression));
-            return;
+        @Override
+        public Void visitVariableAssignment(VariableAssignment variableAssignment, Void context) {
+            VariableReference name = variableAssignment.name;
+            variableTypes[name.scopeDepth][name.slot] = typeExpression(variableAssignment.expression);
+            return null;
         }
 
         // CH01, Check if variable refrence is defined.
         // CH06, Check if variable refrence is defined in current scope or in global variables.
-        if (node instanceof VariableReference) {
-            VariableReference variableReference = (VariableReference) node;
+        @Override
+        public Void visitVariableReference(VariableReference variableReference, Void context) {
             String variableName = variableReference.name;
-            Boolean foundVariable = false;
-            loop:
-            for (HashMap<String,ExpressionType> variables : variableTypes) {
-                if (keyIsInMap(variableName, variables)) {
-                    foundVariable = true;
-                    break loop;
-                }
-            }
+            // The Resolver leaves references without a variable in scope unbound
+            boolean foundVariable = variableReference.scopeDepth >= 0;
             if (!foundVariable) {
-                node.setError("CH01, CH06: Variable " + variableName + " not declared in it's local scope or global scope");
+                variableReference.setError("CH01, CH06: Variable " + variableName + " not declared in it's local scope or global scope");
             }
-            return;
+            return null;
         }
 
         // CH04: Check if the value matches the type for an declaration
-        if (node instanceof Declaration) {
-            Declaration declaration = (Declaration) node;
-            ExpressionType expressionType = getExpressionType(declaration.expression);
-            if (declaration.property.name.matches("width|height")) {
-                if (expressionType == ExpressionType.COLOR) {
-                    node.setError("CH04: Value type: Color does not match the property for the declaration. The type shouldn't be COLOR but is COLOR");
-                    return;
-                }
-                return;
+        @Override
+        public Void visitDeclaration(Declaration declaration, Void context) {
+            ExpressionType expressionType = typeExpression(declaration.expression);
+            PropertyDefinition property = properties.get(declaration.property.name);
+            if (property == null) {
+                declaration.setError("CH04: Unknown property " + declaration.property.name);
+                return null;
             }
-            if (declaration.property.name.matches("color|background-color")) {
-                if (expressionType != ExpressionType.COLOR) {
-                    node.setError("CH04: Value type does not match the property for the declaration. The type should be COLOR and is " + expressionType);
-                    return;
-                }
-                return;
+            // If it is null that means the variable wasn't defined. This check will be done in the variable refrence node
+            if (expressionType == null) return null;
+            if (!property.allows(expressionType)) {
+                declaration.setError("CH04: Value type does not match the property for the declaration. The type of "
+                        + property.getName() + " should be one of " + property.getAllowedTypes() + " and is " + expressionType);
             }
+            return null;
         }
 
         // EU01: Check if there are no duplicate selectors
-        if (node instanceof Stylerule) {
-            Stylerule stylerule = (Stylerule) node;
+        @Override
+        public Void visitStylerule(Stylerule stylerule, Void context) {
             ArrayList<Selector> selectors = stylerule.selectors;
             if (selectors.size() <= 1) {
-                return;
+                return null;
             }
-            System.out.println(selectors.get(0).equals(selectors.get(1)));
             for (int i = 0; i < selectors.size(); i++) {
                 for (int j = i+1; j < selectors.size()-i; j++) {
                     if (selectors.get(i).equals(selectors.get(j))) {
-                        node.setError("EU01: Duplicate selector " + selectors.get(i));
-                        return;
+                        stylerule.setError("EU01: Duplicate selector " + selectors.get(i));
+                        return null;
                     }
                 }
             }
+            return null;
         }
 
-        if (node instanceof Operation) {
-            Operation operation = (Operation) node;
-            ExpressionType lhs = getExpressionType(operation.lhs);
-            ExpressionType rhs = getExpressionType(operation.rhs);
+        @Override
+        public Void visitOperation(Operation operation, Void context) {
+            // Operations count as UNDEFINED here, their result type is checked by CH02
+            ExpressionType lhs = operation.lhs instanceof Operation ? ExpressionType.UNDEFINED : operation.lhs.expressionType;
+            ExpressionType rhs = operation.rhs instanceof Operation ? ExpressionType.UNDEFINED : operation.rhs.expressionType;
             // CH03: Check if the operation doesn't use colors
             if (lhs == ExpressionType.COLOR || rhs == ExpressionType.COLOR) {
-                node.setError("CH03: Colors are not allowed in operations");
-                return;
+                operation.setError("CH03: Colors are not allowed in operations");
+                return null;
             };
             if (lhs == ExpressionType.BOOL || lhs == ExpressionType.BOOL) {
-                node.setError("CH03: Booleans are not allowed in operations");
-                return;
+                operation.setError("CH03: Booleans are not allowed in operations");
+                return null;
             }
             // CH02: Check if the operation uses valid operands.
-            validateOperation(operation, operation);
+            validateOperation(operation);
+            return null;
         }
 
-         // CH05: Check if the condition is a bool
-         if (node instanceof IfClause) {
-            IfClause ifClause = (IfClause) node;
+        // CH05: Check if the condition is a bool
+        @Override
+        public Void visitIfClause(IfClause ifClause, Void context) {
             Expression conditionalExpression = (Expression) ifClause.conditionalExpression;
-            ExpressionType conditionalExpressionType = getExpressionType(conditionalExpression);
+            ExpressionType conditionalExpressionType = typeExpression(conditionalExpression);
             // If it is null that means the variable wasn't defined. This check will be done in the variable refrence node
-            if (conditionalExpressionType == null) return;
+            if (conditionalExpressionType == null) return null;
             if (conditionalExpressionType != ExpressionType.BOOL) {
-                node.setError("CH05: If statement condition is not of type boolean");
+                ifClause.setError("CH05: If statement condition is not of type boolean");
             }
-            return;
+            return null;
         }
     }
 
-    private ExpressionType validateOperation(Operation operation, Operation parent) {
-        // Get the expression type
-        Expression lhs = operation.lhs;
-        Expression rhs = operation.rhs;
-        ExpressionType lhsType = getExpressionType(lhs);
-        ExpressionType rhsType = getExpressionType(rhs);
-
-        // If the left hand side expression type is UNDEFINED it means it's an operation so get the type of it recursively.
-        if (lhsType == ExpressionType.UNDEFINED) {
-            Operation lhsOperation = (Operation) lhs;
-            lhsType = validateOperation(lhsOperation, operation);
-            if (lhsType == null) {
-                return null;
+    // Errors of operations used as operand are reported on this operation as well
+    private void validateOperation(Operation operation) {
+        if (operation.lhs instanceof Operation) {
+            getOperationType((Operation) operation.lhs, operation);
+            if (operation.lhs.expressionType == ExpressionType.UNDEFINED) {
+                return;
+            }
+        }
+        if (operation.rhs instanceof Operation) {
+            getOperationType((Operation) operation.rhs, operation);
+            if (operation.rhs.expressionType == ExpressionType.UNDEFINED) {
+                return;
             }
         }
+        getOperationType(operation, operation);
+    }
 
-        // If the right hand side expression type is UNDEFINED it means it's an operation so get the type of it recursively.
-        if (rhsType == ExpressionType.UNDEFINED) {
-            Operation rhsOperation = (Operation) rhs;
-            rhsType = validateOperation(rhsOperation , operation);
-            if (rhsType == null) {
-                return null;
+    // Types an expression bottom-up and caches the type on every node, so each node is typed once.
+    // Has to be done before the expression's nodes are checked themselves.
+    private ExpressionType typeExpression(Expression expression) {
+        ASTWalker walker = new ASTWalker(expression);
+        while (walker.next()) {
+            // The operands of an operation are exited before the operation itself
+            if (!walker.isEnter()) {
+                Expression operand = (Expression) walker.node();
+                operand.expressionType = operand.accept(expressionTyper, null);
             }
         }
+        return expression.expressionType;
+    }
+
+    // The type of an expression, from the cached types of its operands
+    private class ExpressionTyper implements ASTVisitor<ExpressionType, Void> {
+
+        @Override
+        public ExpressionType visitNode(ASTNode node, Void context) {
+            return ExpressionType.UNDEFINED;
+        }
+
+        @Override
+        public ExpressionType visitPixelLiteral(PixelLiteral node, Void context) {
+            return ExpressionType.PIXEL;
+        }
+
+        @Override
+        public ExpressionType visitPercentageLiteral(PercentageLiteral node, Void context) {
+            return ExpressionType.PERCENTAGE;
+        }
+
+        @Override
+        public ExpressionType visitColorLiteral(ColorLiteral node, Void context) {
+            return ExpressionType.COLOR;
+        }
+
+        @Override
+        public ExpressionType visitScalarLiteral(ScalarLiteral node, Void context) {
+            return ExpressionType.SCALAR;
+        }
+
+        @Override
+        public ExpressionType visitBoolLiteral(BoolLiteral node, Void context) {
+            return ExpressionType.BOOL;
+        }
+
+        @Override
+        public ExpressionType visitVariableReference(VariableReference variableReference, Void context) {
+            return getVariableType(variableReference);
+        }
+
+        @Override
+        public ExpressionType visitOperation(Operation operation, Void context) {
+            return getOperationType(operation, null);
+        }
+    }
+
+    // The result type of an operation, from the cached types of its operands.
+    // When the operation is invalid UNDEFINED is returned and, if an errorTarget is given, the error is set on it.
+    private ExpressionType getOperationType(Operation operation, ASTNode errorTarget) {
+        ExpressionType lhsType = operation.lhs.expressionType;
+        ExpressionType rhsType = operation.rhs.expressionType;
+
+        // An invalid operand has already been reported
+        if (lhsType == ExpressionType.UNDEFINED || rhsType == ExpressionType.UNDEFINED) {
+            return ExpressionType.UNDEFINED;
+        }
 
         // If they are null that means the variables weren't defined. This check will be done in the variable refrence node
         if (lhsType == null || rhsType == null) {
-            parent.setError("CH02: Unable to verrify correctness of operation due to invalid variables.");
-            return null;
+            setError(errorTarget, "CH02: Unable to verrify correctness of operation due to invalid variables.");
+            return ExpressionType.UNDEFINED;
         }
 
         if (operation instanceof MultiplyOperation) {
@@ -189,62 +311,34 @@ public class Checker {
                 // Prefer returning a type that isn't a scalar
                 return lhsType != ExpressionType.SCALAR ? lhsType : rhsType;
             }
-            parent.setError("CH02: MultiplyOperation should atleast contain one scalar");
-            return null;
+            setError(errorTarget, "CH02: MultiplyOperation should atleast contain one scalar");
+            return ExpressionType.UNDEFINED;
         }
 
         if (operation instanceof AddOperation || operation instanceof SubtractOperation) {
             if (lhsType == ExpressionType.SCALAR || rhsType == ExpressionType.SCALAR) {
-                parent.setError("CH02: Invalid subtract or add operation Scalars are not allowed");
-                return null;
+                setError(errorTarget, "CH02: Invalid subtract or add operation Scalars are not allowed");
+                return ExpressionType.UNDEFINED;
             }
             if (lhsType == rhsType) return lhsType;
-            parent.setError("CH02: Invalid subtract or add operation " + lhsType + " does not match with " + rhsType);
-            return null;
-        }
-
-        parent.setError("CH02: Invalid operation " + lhsType + " does not match with " + rhsType);
-        return null;
-    }
-
-    private ExpressionType getVariableType(String key) {
-        ExpressionType type = null;
-
-        // Go from back to front to get the scoped variables first.
-        loop:
-        for (int i = variableTypes.size() - 1; i >= 0; i--) {
-            type = variableTypes.get(i).get(key);
-            if (type != null) break loop;
+            setError(errorTarget, "CH02: Invalid subtract or add operation " + lhsType + " does not match with " + rhsType);
+            return ExpressionType.UNDEFINED;
         }
 
-        return type;
+        setError(errorTarget, "CH02: Invalid operation " + lhsType + " does not match with " + rhsType);
+        return ExpressionType.UNDEFINED;
     }
 
-    private <T> Boolean keyIsInMap(String key, HashMap<String, T> map) {
-        for (String mapKey : map.keySet()) {
-            if (mapKey.equals(key)) {
-                return true;
-            }
+    private static void setError(ASTNode node, String description) {
+        if (node != null) {
+            node.setError(description);
         }
-        return false;
     }
 
-    private ExpressionType getExpressionType(Expression expression) {
-        if (expression instanceof PixelLiteral) {
-            return ExpressionType.PIXEL;
-        } else if (expression instanceof PercentageLiteral) {
-            return ExpressionType.PERCENTAGE;
-        } else if (expression instanceof ColorLiteral) {
-            return ExpressionType.COLOR;
-        } else if (expression instanceof ScalarLiteral) {
-            return ExpressionType.SCALAR;
-        } else if (expression instanceof BoolLiteral) {
-            return ExpressionType.BOOL;
-        } else if (expression instanceof VariableReference) {
-            VariableReference variableReference = (VariableReference) expression;
-            return getVariableType(variableReference.name);
-        } else {
-            return ExpressionType.UNDEFINED;
+    private ExpressionType getVariableType(VariableReference variableReference) {
+        if (variableReference.scopeDepth < 0) {
+            return null;
         }
+        return variableTypes[variableReference.scopeDepth][variableReference.slot];
     }
 }
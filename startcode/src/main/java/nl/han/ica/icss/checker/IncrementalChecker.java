@@ -0,0 +1,161 @@
+package nl.han.ica.icss.checker;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+/**
+ * Checks an AST that changes over time, for instance one kept up to date by an IncrementalParser.
+ *
+ * The first check validates everything. After that a check only validates the top-level variables and style rules
+ * that were added since the previous check, plus every element that uses a global variable assigned by an added or
+ * removed element, and so on for the variables those elements assign. Errors are updated on the nodes in place,
+ * so afterwards AST.getErrors gives the same errors as a full check with the Checker.
+ *
+ * Elements are recognised by identity: an element that is still the same object is assumed to be unchanged.
+ * An IncrementalChecker is not thread-safe.
+ */
+public class IncrementalChecker {
+
+    // The top-level elements as of the previous check
+    private Set<ASTNode> elements = identitySet();
+
+    // Dependency graph: the global variable names each element uses, and the elements using each name
+    private final Map<ASTNode, Set<String>> usedNames = new IdentityHashMap<>();
+    private final Map<String, Set<ASTNode>> usersByName = new HashMap<>();
+
+    // The type each top-level VariableAssignment gave its variable, may be null for an undefined variable
+    private final Map<ASTNode, ExpressionType> assignedTypes = new IdentityHashMap<>();
+
+    private int lastCheckedCount = 0;
+
+    public void check(AST ast) {
+        List<ASTNode> body = ast.root.body;
+        Set<ASTNode> current = identitySet();
+        current.addAll(body);
+
+        // New elements have to be checked, and so do the users of any global variable that was added or removed
+        Set<ASTNode> dirty = identitySet();
+        Deque<String> changedNames = new ArrayDeque<>();
+        for (ASTNode element : body) {
+            if (!elements.contains(element)) {
+                dirty.add(element);
+                addAssignedName(element, changedNames);
+            }
+        }
+        for (ASTNode element : elements) {
+            if (!current.contains(element)) {
+                forget(element);
+                addAssignedName(element, changedNames);
+            }
+        }
+
+        // Follow the dependency graph to everything that transitively depends on a changed variable
+        Set<String> visitedNames = new HashSet<>();
+        while (!changedNames.isEmpty()) {
+            String name = changedNames.poll();
+            if (!visitedNames.add(name)) {
+                continue;
+            }
+            for (ASTNode user : usersByName.getOrDefault(name, Collections.emptySet())) {
+                if (dirty.add(user)) {
+                    addAssignedName(user, changedNames);
+                }
+            }
+        }
+
+        // Walk the top level once. The global scope is rebuilt from the cached types of the clean assignments.
+        HashMap<String, ExpressionType> globalTypes = new HashMap<>();
+        Checker checker = new Checker();
+        for (ASTNode element : body) {
+            if (element instanceof VariableAssignment && !dirty.contains(element)) {
+                globalTypes.put(((VariableAssignment) element).name.name, assignedTypes.get(element));
+                continue;
+            }
+            if (!dirty.contains(element)) {
+                continue;
+            }
+            clearErrors(element);
+            forget(element);
+            checker.check(element, globalTypes);
+            remember(element);
+            if (element instanceof VariableAssignment) {
+                assignedTypes.put(element, globalTypes.get(((VariableAssignment) element).name.name));
+            }
+        }
+
+        // The checked elements were resolved one at a time, with slots of their own, so the frame sizes of the
+        // whole stylesheet no longer match its references
+        ast.frameSizes = null;
+        elements = current;
+        lastCheckedCount = dirty.size();
+    }
+
+    /**
+     * @return the number of top-level elements the last check validated
+     */
+    public int getLastCheckedCount() {
+        return lastCheckedCount;
+    }
+
+    private void remember(ASTNode element) {
+        Set<String> names = new HashSet<>();
+        collectNames(element, names);
+        usedNames.put(element, names);
+        for (String name : names) {
+            usersByName.computeIfAbsent(name, key -> identitySet()).add(element);
+        }
+    }
+
+    private void forget(ASTNode element) {
+        assignedTypes.remove(element);
+        Set<String> names = usedNames.remove(element);
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            Set<ASTNode> users = usersByName.get(name);
+            users.remove(element);
+            if (users.isEmpty()) {
+                usersByName.remove(name);
+            }
+        }
+    }
+
+    private static void addAssignedName(ASTNode element, Deque<String> names) {
+        if (element instanceof VariableAssignment) {
+            names.add(((VariableAssignment) element).name.name);
+        }
+    }
+
+    private static void collectNames(ASTNode node, Set<String> names) {
+        ASTWalker walker = new ASTWalker(node);
+        while (walker.next()) {
+            if (walker.isEnter() && walker.node() instanceof VariableReference) {
+                names.add(((VariableReference) walker.node()).name);
+            }
+        }
+    }
+
+    private static void clearErrors(ASTNode node) {
+        ASTWalker walker = new ASTWalker(node);
+        while (walker.next()) {
+            if (walker.isEnter()) {
+                walker.node().clearError();
+            }
+        }
+    }
+
+    private static Set<ASTNode> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
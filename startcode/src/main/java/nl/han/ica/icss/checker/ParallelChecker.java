@@ -0,0 +1,129 @@
+package nl.han.ica.icss.checker;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTWalker;
+import nl.han.ica.icss.ast.Chunking;
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+
+/**
+ * Checks a stylesheet like the Checker does, with the top-level rules spread over the threads of a ForkJoinPool.
+ *
+ * The stylesheet is resolved once, then the global assignments are checked in document order and every rule gets
+ * the types of the globals at its place in the stylesheet. Rules between two assignments share one copy.
+ * The rules are checked in chunks as fork-join tasks, each with a Checker and scope frames of its own.
+ * Errors are set on the nodes as the Checker does, and are returned in document order: every chunk collects the
+ * errors of its elements, and chunks are joined in order.
+ *
+ * Stylesheets with too few rules to split are checked on the calling thread.
+ */
+public class ParallelChecker {
+
+    private final Chunking chunking;
+    private final PropertyRegistry properties;
+
+    public ParallelChecker() {
+        this(new Chunking(), PropertyRegistry.DEFAULT);
+    }
+
+    public ParallelChecker(Chunking chunking, PropertyRegistry properties) {
+        this.chunking = chunking;
+        this.properties = properties;
+    }
+
+    /**
+     * @return the errors, in document order, the same as ast.getErrors() afterwards
+     */
+    public ArrayList<SemanticError> check(AST ast) {
+        ArrayList<ASTNode> body = ast.root.body;
+        int chunk = chunking.chunkSize(body.size());
+        if (body.size() <= chunk) {
+            new Checker(properties).check(ast);
+            return ast.getErrors();
+        }
+
+        new Resolver().resolve(ast);
+        ExpressionType[][] globals = checkGlobals(ast);
+        return chunking.getPool().invoke(new Elements(ast, globals, 0, body.size(), chunk));
+    }
+
+    // Checks the global assignments, and returns the types of the globals every top-level rule sees
+    private ExpressionType[][] checkGlobals(AST ast) {
+        Checker checker = new Checker(properties);
+        checker.prepare(ast);
+        ArrayList<ASTNode> body = ast.root.body;
+        ExpressionType[][] globals = new ExpressionType[body.size()][];
+        ExpressionType[] current = checker.getGlobals().clone();
+        boolean changed = false;
+        for (int i = 0; i < body.size(); i++) {
+            ASTNode element = body.get(i);
+            if (element instanceof VariableAssignment) {
+                checker.checkNode(element);
+                changed = true;
+            } else {
+                if (changed) {
+                    current = checker.getGlobals().clone();
+                    changed = false;
+                }
+                globals[i] = current;
+            }
+        }
+        return globals;
+    }
+
+    // Checks the top-level rules from start up to end, and collects the errors of all elements in that range
+    private class Elements extends RecursiveTask<ArrayList<SemanticError>> {
+
+        private final AST ast;
+        private final ExpressionType[][] globals;
+        private final int start;
+        private final int end;
+        private final int chunk;
+
+        Elements(AST ast, ExpressionType[][] globals, int start, int end, int chunk) {
+            this.ast = ast;
+            this.globals = globals;
+            this.start = start;
+            this.end = end;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected ArrayList<SemanticError> compute() {
+            if (end - start > chunk) {
+                int middle = (start + end) >>> 1;
+                Elements first = new Elements(ast, globals, start, middle, chunk);
+                first.fork();
+                ArrayList<SemanticError> second = new Elements(ast, globals, middle, end, chunk).compute();
+                ArrayList<SemanticError> errors = first.join();
+                errors.addAll(second);
+                return errors;
+            }
+
+            Checker checker = new Checker(properties);
+            checker.prepare(ast);
+            ArrayList<ASTNode> body = ast.root.body;
+            ArrayList<SemanticError> errors = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                ASTNode element = body.get(i);
+                // Assignments were checked up front
+                if (globals[i] != null) {
+                    checker.setGlobals(globals[i]);
+                    checker.checkNode(element);
+                }
+                ASTWalker walker = new ASTWalker(element);
+                while (walker.next()) {
+                    if (walker.isEnter() && walker.node().hasError()) {
+                        errors.add(walker.node().getError());
+                    }
+                }
+            }
+            return errors;
+        }
+    }
+}
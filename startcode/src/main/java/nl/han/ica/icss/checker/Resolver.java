@@ -0,0 +1,133 @@
+package nl.han.ica.icss.checker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+import nl.han.ica.icss.ast.*;
+
+/**
+ * Binds every VariableReference to the slot of the variable it refers to, so the Checker and EvalExpressions
+ * can look variables up by array index instead of by name.
+ *
+ * The stylesheet is scope depth 0, every Stylerule and IfClause opens a scope one deeper. Within a scope every
+ * variable name gets its own slot; assigning the same name again in the same scope reuses the slot.
+ * A reference is bound to the innermost scope that assigned the name before it, in document order,
+ * or gets depth and slot -1 when there is none. Only one scope per depth is open at a time while walking the AST,
+ * so one array per depth, sized by the frame sizes the Resolver returns, holds all variables.
+ */
+public class Resolver {
+
+    private final Set<String> predeclaredGlobals;
+    private final ArrayList<HashMap<String, Integer>> scopes = new ArrayList<>();
+    private int[] frameSizes = new int[4];
+
+    public Resolver() {
+        this(Collections.emptySet());
+    }
+
+    /**
+     * @param predeclaredGlobals global variables assigned outside the resolved nodes; they get a global slot
+     *                           when first referenced
+     */
+    public Resolver(Set<String> predeclaredGlobals) {
+        this.predeclaredGlobals = predeclaredGlobals;
+    }
+
+    /**
+     * Resolves the whole stylesheet and stores the frame sizes in the AST.
+     */
+    public void resolve(AST ast) {
+        ast.frameSizes = resolve(ast.root);
+    }
+
+    /**
+     * @return the number of slots needed per scope depth
+     */
+    int[] resolve(ASTNode node) {
+        scopes.clear();
+        scopes.add(new HashMap<>());
+        resolveNode(node);
+
+        int depth = frameSizes.length;
+        while (depth > 1 && frameSizes[depth - 1] == 0) {
+            depth--;
+        }
+        int[] result = new int[depth];
+        System.arraycopy(frameSizes, 0, result, 0, depth);
+        return result;
+    }
+
+    /**
+     * @return the slots given to global variables by the last resolve
+     */
+    public HashMap<String, Integer> getGlobalSlots() {
+        return scopes.get(0);
+    }
+
+    private void resolveNode(ASTNode node) {
+        ASTWalker walker = new ASTWalker(node);
+        while (walker.next()) {
+            ASTNode current = walker.node();
+            if (current instanceof VariableAssignment) {
+                // The expression still sees the previous value of the variable, so the name is declared after it
+                if (!walker.isEnter()) {
+                    declare(((VariableAssignment) current).name, scopes.size() - 1);
+                }
+                continue;
+            }
+
+            if (current instanceof VariableReference) {
+                boolean assignedName = walker.parent() instanceof VariableAssignment
+                        && ((VariableAssignment) walker.parent()).name == current;
+                if (walker.isEnter() && !assignedName) {
+                    bind((VariableReference) current);
+                }
+                continue;
+            }
+
+            if (current instanceof Stylerule || current instanceof IfClause) {
+                if (walker.isEnter()) {
+                    scopes.add(new HashMap<>());
+                } else {
+                    scopes.remove(scopes.size() - 1);
+                }
+            }
+        }
+    }
+
+    private void declare(VariableReference name, int depth) {
+        HashMap<String, Integer> scope = scopes.get(depth);
+        Integer slot = scope.get(name.name);
+        if (slot == null) {
+            slot = scope.size();
+            scope.put(name.name, slot);
+            if (depth >= frameSizes.length) {
+                int[] grown = new int[Math.max(frameSizes.length * 2, depth + 1)];
+                System.arraycopy(frameSizes, 0, grown, 0, frameSizes.length);
+                frameSizes = grown;
+            }
+            frameSizes[depth] = Math.max(frameSizes[depth], scope.size());
+        }
+        name.scopeDepth = depth;
+        name.slot = slot;
+    }
+
+    private void bind(VariableReference reference) {
+        for (int depth = scopes.size() - 1; depth >= 0; depth--) {
+            Integer slot = scopes.get(depth).get(reference.name);
+            if (slot != null) {
+                reference.scopeDepth = depth;
+                reference.slot = slot;
+                return;
+            }
+        }
+        if (predeclaredGlobals.contains(reference.name)) {
+            declare(reference, 0);
+            return;
+        }
+        reference.scopeDepth = -1;
+        reference.slot = -1;
+    }
+}
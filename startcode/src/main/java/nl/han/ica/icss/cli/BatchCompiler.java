@@ -0,0 +1,249 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompileOptions;
+import nl.han.ica.icss.CompileResult;
+import nl.han.ica.icss.ICSSCompiler;
+import nl.han.ica.icss.parser.WarmupProfile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many ICSS files at once without the GUI.
+ * Every file is compiled as a task on a work-stealing pool, all tasks share one reentrant ICSSCompiler.
+ */
+public class BatchCompiler {
+
+    private static final String SOURCE_EXTENSION = ".icss";
+    private static final String TARGET_EXTENSION = ".css";
+    private static final int PROFILE_SAMPLES = 8;
+
+    private final ICSSCompiler compiler = new ICSSCompiler();
+    private final Path outputDirectory;
+    private final int parallelism;
+    private final CompileOptions options;
+
+    /**
+     * @param outputDirectory directory to write the css files to, or null to write them next to their source
+     * @param parallelism     number of worker threads
+     */
+    public BatchCompiler(Path outputDirectory, int parallelism) {
+        this(outputDirectory, parallelism, CompileOptions.DEFAULT);
+    }
+
+    /**
+     * @param outputDirectory directory to write the css files to, or null to write them next to their source
+     * @param parallelism     number of worker threads
+     * @param options         options for every compile
+     */
+    public BatchCompiler(Path outputDirectory, int parallelism, CompileOptions options) {
+        this.outputDirectory = outputDirectory;
+        this.parallelism = parallelism;
+        this.options = options;
+    }
+
+    /**
+     * Expands the given files, directories and glob patterns into the list of sources to compile.
+     * Directories are searched recursively for .icss files.
+     *
+     * @throws IllegalArgumentException when two sources would be compiled to the same target file
+     */
+    public List<Source> collectSources(List<String> inputs) throws IOException {
+        Set<Source> sources = new LinkedHashSet<>();
+        for (String input : inputs) {
+            if (isGlob(input)) {
+                collectGlob(input, sources);
+                continue;
+            }
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                collectDirectory(path, p -> p.toString().endsWith(SOURCE_EXTENSION), sources);
+            } else if (Files.isRegularFile(path)) {
+                sources.add(new Source(path, path.getFileName()));
+            } else {
+                throw new NoSuchFileException(input);
+            }
+        }
+        checkTargets(sources);
+        return new ArrayList<>(sources);
+    }
+
+    // Sources are compiled concurrently, two of them writing the same file would overwrite each other
+    private void checkTargets(Set<Source> sources) {
+        Map<Path, Source> targets = new HashMap<>();
+        for (Source source : sources) {
+            Source other = targets.putIfAbsent(targetFor(source).toAbsolutePath().normalize(), source);
+            if (other != null) {
+                throw new IllegalArgumentException(other.path + " and " + source.path
+                        + " would both be compiled to " + targetFor(source));
+            }
+        }
+    }
+
+    /**
+     * Builds the parser's prediction DFA before compiling, from the profile when one exists and
+     * matches the grammar, otherwise from the bundled examples.
+     *
+     * @return true when the profile was used
+     */
+    public boolean warmUp(Path profile) throws IOException {
+        if (profile != null && Files.exists(profile) && compiler.warmUp(profile)) {
+            return true;
+        }
+        compiler.warmUp();
+        return false;
+    }
+
+    /**
+     * Records a warm-up profile from the first sources, for the next run to start with.
+     */
+    public void saveWarmupProfile(Path profile, List<Source> sources) throws IOException {
+        List<String> samples = new ArrayList<>();
+        for (Source source : sources.subList(0, Math.min(sources.size(), PROFILE_SAMPLES))) {
+            samples.add(Files.readString(source.path, StandardCharsets.UTF_8));
+        }
+        WarmupProfile.save(profile, samples);
+    }
+
+    /**
+     * Compiles all sources concurrently. Results are returned in the same order as the sources.
+     */
+    public List<Result> compile(List<Source> sources) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+            for (Source source : sources) {
+                tasks.add(pool.submit(() -> compile(source)));
+            }
+            return tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result compile(Source source) {
+        Path target = targetFor(source);
+        List<String> errors = new ArrayList<>();
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            CompileResult result = compiler.compile(source.path, target, options);
+            errors.addAll(result.getErrors());
+        } catch (IOException | RuntimeException e) {
+            // One broken file should not take down the rest of the batch
+            errors.add(e.toString());
+        }
+        return new Result(source, target, errors);
+    }
+
+    private Path targetFor(Source source) {
+        String fileName = source.path.getFileName().toString();
+        if (fileName.endsWith(SOURCE_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - SOURCE_EXTENSION.length());
+        }
+        fileName += TARGET_EXTENSION;
+
+        if (outputDirectory == null) {
+            return source.path.resolveSibling(fileName);
+        }
+        Path relativeParent = source.relativePath.getParent();
+        Path directory = relativeParent == null ? outputDirectory : outputDirectory.resolve(relativeParent);
+        return directory.resolve(fileName);
+    }
+
+    private static boolean isGlob(String input) {
+        return input.contains("*") || input.contains("?") || input.contains("[") || input.contains("{");
+    }
+
+    // Walk the directory in front of the first glob character and keep everything matching the pattern.
+    private static void collectGlob(String pattern, Set<Source> sources) throws IOException {
+        String normalized = pattern.replace('\\', '/');
+        int firstGlobCharacter = indexOfGlobCharacter(normalized);
+        int baseEnd = normalized.lastIndexOf('/', firstGlobCharacter);
+        Path base = baseEnd < 0 ? Paths.get("") : Paths.get(normalized.substring(0, baseEnd + 1));
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+        if (Files.isDirectory(base.toAbsolutePath())) {
+            collectDirectory(base, matcher, sources);
+        }
+    }
+
+    private static int indexOfGlobCharacter(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+
+    private static void collectDirectory(Path root, PathMatcher matcher, Set<Source> sources) throws IOException {
+        Path start = root.toString().isEmpty() ? Paths.get(".") : root;
+        try (Stream<Path> paths = Files.walk(start)) {
+            for (Path path : (Iterable<Path>) paths.sorted()::iterator) {
+                Path relative = start.relativize(path);
+                Path source = root.resolve(relative);
+                if (Files.isRegularFile(path) && matcher.matches(source)) {
+                    sources.add(new Source(source, relative));
+                }
+            }
+        }
+    }
+
+    /**
+     * An input file together with its path relative to the directory or glob it was found through.
+     */
+    public static class Source {
+        public final Path path;
+        public final Path relativePath;
+
+        public Source(Path path, Path relativePath) {
+            this.path = path;
+            this.relativePath = relativePath;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return path.toAbsolutePath().normalize().equals(((Source) o).path.toAbsolutePath().normalize());
+        }
+
+        @Override
+        public int hashCode() {
+            return path.toAbsolutePath().normalize().hashCode();
+        }
+    }
+
+    /**
+     * The outcome of compiling a single source file.
+     */
+    public static class Result {
+        public final Source source;
+        public final Path target;
+        public final List<String> errors;
+
+        public Result(Source source, Path target, List<String> errors) {
+            this.source = source;
+            this.target = target;
+            this.errors = errors;
+        }
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package nl.han.ica.icss.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.han.ica.icss.CompileOptions;
+
+/**
+ * Headless entry point: compiles .icss files, directories and glob patterns to .css.
+ *
+ * Usage: java nl.han.ica.icss.cli.Main [-o outputDir] [-j threads] [-p profile] [-c] [-s] input...
+ *
+ * With -c every file is held in a compact FlatAST instead of an object AST, for files too large to compile
+ * within the heap otherwise.
+ * With -s the work on the rules of every file is split over all cores, for a few very large files.
+ * With -p the parser is warmed up from the given profile, or when it does not exist yet,
+ * a profile is recorded from the compiled files for the next run.
+ *
+ * Exits with 0 when every file compiled, 1 when at least one file failed and 2 on invalid usage,
+ * which includes two inputs that would be compiled to the same file.
+ */
+public class Main {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_COMPILE_ERRORS = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage: icss [-o outputDir] [-j threads] [-p profile] [-c] [-s] (file | directory | glob)...";
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    public static int run(String[] args) {
+        Path outputDirectory = null;
+        Path profile = null;
+        boolean compactAst = false;
+        boolean split = false;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o":
+                    case "--output":
+                        outputDirectory = Paths.get(args[++i]);
+                        break;
+                    case "-j":
+                    case "--threads":
+                        parallelism = Integer.parseInt(args[++i]);
+                        break;
+                    case "-p":
+                    case "--profile":
+                        profile = Paths.get(args[++i]);
+                        break;
+                    case "-c":
+                    case "--compact":
+                        compactAst = true;
+                        break;
+                    case "-s":
+                    case "--split":
+                        split = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return EXIT_SUCCESS;
+                    default:
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (inputs.isEmpty() || parallelism < 1) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        CompileOptions options = CompileOptions.DEFAULT.withCompactAst(compactAst).withParallel(split);
+        BatchCompiler compiler = new BatchCompiler(outputDirectory, parallelism, options);
+        List<BatchCompiler.Source> sources;
+        boolean profileUsed;
+        try {
+            sources = compiler.collectSources(inputs);
+            profileUsed = compiler.warmUp(profile);
+        } catch (IOException e) {
+            System.err.println("Unable to read input: " + e);
+            return EXIT_USAGE;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        int failed = 0;
+        for (BatchCompiler.Result result : compiler.compile(sources)) {
+            if (result.isSuccess()) {
+                continue;
+            }
+            failed++;
+            for (String error : result.errors) {
+                System.err.println(result.source.path + ": " + error);
+            }
+        }
+        System.out.println("Compiled " + (sources.size() - failed) + " of " + sources.size() + " files");
+
+        if (profile != null && !profileUsed) {
+            try {
+                compiler.saveWarmupProfile(profile, sources);
+            } catch (IOException e) {
+                System.err.println("Unable to save warm-up profile: " + e);
+            }
+        }
+        return failed == 0 ? EXIT_SUCCESS : EXIT_COMPILE_ERRORS;
+    }
+}
@@ -0,0 +1,192 @@
+package nl.han.ica.icss.generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where the Generator writes the CSS to.
+ * Text targets get the CSS appended, byte targets get it encoded as UTF-8 into a buffer
+ * that is written out every time it fills up.
+ */
+abstract class CssOutput {
+
+	// Indentation for the usual nesting levels, deeper levels are built from these
+	private static final String[] INDENTS = new String[16];
+
+	static {
+		StringBuilder indent = new StringBuilder();
+		for (int i = 0; i < INDENTS.length; i++) {
+			INDENTS[i] = indent.toString();
+			indent.append('\t');
+		}
+	}
+
+	abstract CssOutput append(String text) throws IOException;
+
+	abstract CssOutput append(char character) throws IOException;
+
+	abstract CssOutput append(int value) throws IOException;
+
+	// Write out whatever is still buffered
+	abstract void flush() throws IOException;
+
+	CssOutput indent(int level) throws IOException {
+		while (level >= INDENTS.length) {
+			append(INDENTS[INDENTS.length - 1]);
+			level -= INDENTS.length - 1;
+		}
+		return append(INDENTS[level]);
+	}
+
+	static CssOutput of(Appendable appendable) {
+		return new TextOutput(appendable);
+	}
+
+	static CssOutput of(OutputStream outputStream) {
+		return new ByteOutput(outputStream, null);
+	}
+
+	static CssOutput of(WritableByteChannel channel) {
+		return new ByteOutput(null, channel);
+	}
+
+	private static final class TextOutput extends CssOutput {
+		private final Appendable appendable;
+
+		TextOutput(Appendable appendable) {
+			this.appendable = appendable;
+		}
+
+		@Override
+		CssOutput append(String text) throws IOException {
+			appendable.append(text);
+			return this;
+		}
+
+		@Override
+		CssOutput append(char character) throws IOException {
+			appendable.append(character);
+			return this;
+		}
+
+		@Override
+		CssOutput append(int value) throws IOException {
+			if (appendable instanceof StringBuilder) {
+				((StringBuilder) appendable).append(value);
+			} else {
+				appendable.append(Integer.toString(value));
+			}
+			return this;
+		}
+
+		@Override
+		void flush() {
+		}
+	}
+
+	private static final class ByteOutput extends CssOutput {
+		private static final int BUFFER_SIZE = 8192;
+
+		private final OutputStream outputStream;
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private final byte[] bytes = buffer.array();
+		private int position = 0;
+
+		ByteOutput(OutputStream outputStream, WritableByteChannel channel) {
+			this.outputStream = outputStream;
+			this.channel = channel;
+		}
+
+		@Override
+		CssOutput append(String text) throws IOException {
+			int length = text.length();
+			for (int i = 0; i < length; i++) {
+				char character = text.charAt(i);
+				if (character >= 0x80) {
+					// Leave everything from the first non-ASCII character to the encoder
+					appendEncoded(text.substring(i));
+					return this;
+				}
+				if (position == bytes.length) {
+					flush();
+				}
+				bytes[position++] = (byte) character;
+			}
+			return this;
+		}
+
+		@Override
+		CssOutput append(char character) throws IOException {
+			if (character >= 0x80) {
+				appendEncoded(String.valueOf(character));
+				return this;
+			}
+			if (position == bytes.length) {
+				flush();
+			}
+			bytes[position++] = (byte) character;
+			return this;
+		}
+
+		@Override
+		CssOutput append(int value) throws IOException {
+			// Widest int is "-2147483648"
+			if (bytes.length - position < 11) {
+				flush();
+			}
+			if (value == Integer.MIN_VALUE) {
+				return append(Integer.toString(value));
+			}
+			if (value < 0) {
+				bytes[position++] = '-';
+				value = -value;
+			}
+			int end = position + digits(value);
+			for (int i = end - 1; i >= position; i--) {
+				bytes[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			position = end;
+			return this;
+		}
+
+		private void appendEncoded(String text) throws IOException {
+			byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+			for (byte b : encoded) {
+				if (position == bytes.length) {
+					flush();
+				}
+				bytes[position++] = b;
+			}
+		}
+
+		@Override
+		void flush() throws IOException {
+			if (position == 0) {
+				return;
+			}
+			if (outputStream != null) {
+				outputStream.write(bytes, 0, position);
+			} else {
+				buffer.clear().limit(position);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			position = 0;
+		}
+
+		private static int digits(int value) {
+			int digits = 1;
+			while (value >= 10) {
+				value /= 10;
+				digits++;
+			}
+			return digits;
+		}
+	}
+}
@@ -1,12 +1,41 @@
 package nl.han.ica.icss.generator;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.List;
 
 import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.flat.FlatAST;
 import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.types.PropertyDefinition;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
 
+/**
+ * Generates CSS from a transformed AST.
+ * Rules are written to the output while the AST is walked, so the CSS does not have to be held in memory
+ * when it is generated to a Writer, OutputStream or channel.
+ * Property names are written as their PropertyRegistry defines them.
+ */
 public class Generator {
-	private int scopeLevel = 0;
+
+	private static final Enter ENTER = new Enter();
+	private static final Exit EXIT = new Exit();
+
+	private final PropertyRegistry properties;
+
+	public Generator() {
+		this(PropertyRegistry.DEFAULT);
+	}
+
+	/**
+	 * @param properties the properties, for the name to write for each of them
+	 */
+	public Generator(PropertyRegistry properties) {
+		this.properties = properties;
+	}
 
 	public String generate(AST ast) {
 		StringBuilder builder = new StringBuilder();
@@ -14,100 +43,238 @@ public class Generator {
         return builder.toString();
 	}
 
+	public void generate(AST ast, Appendable appendable) throws IOException {
+		generate(ast, CssOutput.of(appendable));
+	}
+
+	// Writes the CSS UTF-8 encoded. The stream is not flushed or closed.
+	public void generate(AST ast, OutputStream outputStream) throws IOException {
+		generate(ast, CssOutput.of(outputStream));
+	}
+
+	// Writes the CSS UTF-8 encoded. The channel is not closed.
+	public void generate(AST ast, WritableByteChannel channel) throws IOException {
+		generate(ast, CssOutput.of(channel));
+	}
+
+	/**
+	 * Generates CSS from a transformed FlatAST, materialising one top-level element at a time.
+	 */
+	public String generate(FlatAST ast) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			generate(ast, CssOutput.of(builder));
+		} catch (IOException e) {
+			// A StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
+	}
+
+	public void generate(FlatAST ast, Appendable appendable) throws IOException {
+		generate(ast, CssOutput.of(appendable));
+	}
+
+	// Writes the CSS UTF-8 encoded. The channel is not closed.
+	public void generate(FlatAST ast, WritableByteChannel channel) throws IOException {
+		generate(ast, CssOutput.of(channel));
+	}
+
 	public void generateNode(ASTNode node, StringBuilder builder) {
-		enterGenerateNode(node, builder);
-		// Base case
-		ArrayList<ASTNode> nodeChildren = node.getChildren();
-		if (nodeChildren.size() == 0) {
-			exitGenerateNode(node, builder);
-			return;
-		}
-
-		// Recursion
-		loop:
-		for (ASTNode childNode : nodeChildren) {
-			// Skip VariableAssignments
-			if (childNode instanceof VariableAssignment) {
-				continue loop;
+		try {
+			generateNode(node, CssOutput.of(builder), 0);
+		} catch (IOException e) {
+			// A StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void generate(AST ast, CssOutput output) throws IOException {
+		generateNode(ast.root, output, 0);
+		output.flush();
+	}
+
+	private void generate(FlatAST ast, CssOutput output) throws IOException {
+		if (ast.root() != FlatAST.NONE) {
+			for (int element = ast.firstChild(ast.root()); element != FlatAST.NONE; element = ast.nextSibling(element)) {
+				generateNode(ast.toNode(element), output, 0);
 			}
-			generateNode(childNode, builder);
 		}
+		output.flush();
+	}
 
-		exitGenerateNode(node, builder);
+	// Generates the top-level elements of a stylesheet from start up to end
+	void generate(List<ASTNode> elements, int start, int end, CssOutput output) throws IOException {
+		for (int i = start; i < end; i++) {
+			generateNode(elements.get(i), output, 0);
+		}
+		output.flush();
 	}
 
-	private void enterGenerateNode(ASTNode node, StringBuilder builder) {
-		if (node instanceof Stylerule) {
-			Stylerule stylerule = (Stylerule) node;
+	private void generateNode(ASTNode node, CssOutput output, int scopeLevel) throws IOException {
+		Output context = new Output(output, scopeLevel, properties);
+		ASTWalker walker = new ASTWalker(node);
+		try {
+			while (walker.next()) {
+				if (walker.isEnter()) {
+					if (!walker.node().accept(ENTER, context)) {
+						walker.skipChildren();
+					}
+				} else {
+					walker.node().accept(EXIT, context);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Writes what comes before the children of a node, returns whether the children have to be generated
+	private static class Enter implements ASTVisitor<Boolean, Output> {
+
+		@Override
+		public Boolean visitNode(ASTNode node, Output output) {
+			return true;
+		}
+
+		// Skip VariableAssignments
+		@Override
+		public Boolean visitVariableAssignment(VariableAssignment node, Output output) {
+			return false;
+		}
+
+		@Override
+		public Boolean visitStylerule(Stylerule stylerule, Output output) {
 			ArrayList<Selector> selectors = stylerule.selectors;
 			ArrayList<Selector> parentSelectors = stylerule.parentSelectors;
-			if (parentSelectors.size() > 0) buildParentSelectors(builder, parentSelectors);
-			buildSelectors(builder, selectors);
-			builder.append(" {\n");
-			scopeLevel++;
+			if (parentSelectors.size() > 0) buildParentSelectors(output, parentSelectors);
+			buildSelectors(output, selectors);
+			output.append(" {\n");
+			// The body of a stylerule is indented one level deeper
+			output.scopeLevel++;
+			return true;
 		}
 
-		if (node instanceof Declaration) {
-			addTabs(builder);
+		@Override
+		public Boolean visitDeclaration(Declaration declaration, Output output) {
+			output.indent();
+			return true;
 		}
 
-		if (node instanceof PropertyName) {
-			PropertyName property = (PropertyName) node;
-			builder.append(property.name)
+		// Unknown properties are written as they are
+		@Override
+		public Boolean visitPropertyName(PropertyName property, Output output) {
+			PropertyDefinition definition = output.properties.get(property.name);
+			output.append(definition != null ? definition.getCssName() : property.name)
 					.append(": ");
+			return true;
 		}
 
-		if (node instanceof PixelLiteral) {
-			PixelLiteral literal = (PixelLiteral) node;
-			builder.append(literal.value).append("px");
+		@Override
+		public Boolean visitPixelLiteral(PixelLiteral literal, Output output) {
+			output.append(literal.value).append("px");
+			return true;
 		}
 
-		if (node instanceof PercentageLiteral) {
-			PercentageLiteral literal = (PercentageLiteral) node;
-			builder.append(literal.value);
+		@Override
+		public Boolean visitPercentageLiteral(PercentageLiteral literal, Output output) {
+			output.append(literal.value);
+			return true;
 		}
 
-		if (node instanceof ColorLiteral) {
-			ColorLiteral literal = (ColorLiteral) node;
-			builder.append(literal.value);
+		@Override
+		public Boolean visitColorLiteral(ColorLiteral literal, Output output) {
+			output.append(literal.value);
+			return true;
 		}
 	}
 
-	private void exitGenerateNode(ASTNode node, StringBuilder builder) {
-		if (node instanceof Stylerule) {
-			scopeLevel--;
-			builder.append("}\n\n");
+	// Writes what comes after the children of a node
+	private static class Exit implements ASTVisitor<Void, Output> {
+
+		@Override
+		public Void visitStylerule(Stylerule stylerule, Output output) {
+			output.scopeLevel--;
+			output.append("}\n\n");
+			return null;
 		}
 
-		if (node instanceof Declaration) {
-			builder.append("\n");
+		@Override
+		public Void visitDeclaration(Declaration declaration, Output output) {
+			output.append('\n');
+			return null;
 		}
 
-		if (node instanceof Literal) {
-			builder.append(";");
+		@Override
+		public Void visitLiteral(Literal literal, Output output) {
+			output.append(';');
+			return null;
 		}
 	}
 
-	private void buildSelectors(StringBuilder builder, ArrayList<Selector> selectors) {
-		builder.append(selectors.get(0).toString());
+	private static void buildSelectors(Output output, ArrayList<Selector> selectors) {
+		output.append(selectors.get(0).toString());
 		for (int i = 1; i < selectors.size(); i++) {
-			builder.append(", ")
-				.append(selectors.get(i));
+			output.append(", ")
+				.append(selectors.get(i).toString());
 		}
 	}
 
-	private void buildParentSelectors(StringBuilder builder, ArrayList<Selector> parentSelectors) {
-		builder.append(parentSelectors.get(0).toString());
+	private static void buildParentSelectors(Output output, ArrayList<Selector> parentSelectors) {
+		output.append(parentSelectors.get(0).toString());
 		for (int i = 1; i < parentSelectors.size(); i++) {
-			builder.append(" ")
-				.append(parentSelectors.get(i));
+			output.append(' ')
+				.append(parentSelectors.get(i).toString());
 		}
-		builder.append(" ");
+		output.append(' ');
 	}
 
-	private void addTabs(StringBuilder builder) {
-		for (int i = 0; i < scopeLevel; i++) {
-			builder.append("\t");
+	// The output of one generate call, the current indentation and the properties to write.
+	// IOExceptions are wrapped so the visitors can pass them on, generateNode unwraps them again.
+	private static final class Output {
+		private final CssOutput css;
+		private final PropertyRegistry properties;
+		private int scopeLevel;
+
+		Output(CssOutput css, int scopeLevel, PropertyRegistry properties) {
+			this.css = css;
+			this.scopeLevel = scopeLevel;
+			this.properties = properties;
+		}
+
+		Output append(String text) {
+			try {
+				css.append(text);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		Output append(char character) {
+			try {
+				css.append(character);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		Output append(int value) {
+			try {
+				css.append(value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		void indent() {
+			try {
+				css.indent(scopeLevel);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 }
@@ -0,0 +1,172 @@
+package nl.han.ica.icss.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Chunking;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+
+/**
+ * Generates CSS like the Generator does, with the top-level elements rendered in chunks on the threads of a
+ * ForkJoinPool. Every chunk gets a buffer of its own, and the buffers are put together in document order.
+ * For a String they are concatenated. To a channel they are written with a single gathering write, straight from the
+ * buffers the chunks were encoded into, so the CSS is not copied once more.
+ *
+ * The whole CSS is held in memory before it is written, unlike with the Generator.
+ * Stylesheets with too few elements to split are generated on the calling thread.
+ */
+public class ParallelGenerator {
+
+	private final Chunking chunking;
+	private final Generator generator;
+
+	public ParallelGenerator() {
+		this(new Chunking(), PropertyRegistry.DEFAULT);
+	}
+
+	public ParallelGenerator(Chunking chunking, PropertyRegistry properties) {
+		this.chunking = chunking;
+		this.generator = new Generator(properties);
+	}
+
+	public String generate(AST ast) {
+		ArrayList<ASTNode> body = ast.root.body;
+		int chunk = chunking.chunkSize(body.size());
+		if (body.size() <= chunk) {
+			return generator.generate(ast);
+		}
+
+		StringBuilder[] chunks = new StringBuilder[chunkCount(body.size(), chunk)];
+		render(chunks.length, index -> {
+			StringBuilder builder = new StringBuilder();
+			generate(body, index, chunk, CssOutput.of(builder));
+			chunks[index] = builder;
+		});
+
+		int length = 0;
+		for (StringBuilder builder : chunks) {
+			length += builder.length();
+		}
+		StringBuilder css = new StringBuilder(length);
+		for (StringBuilder builder : chunks) {
+			css.append(builder);
+		}
+		return css.toString();
+	}
+
+	// Writes the CSS UTF-8 encoded. The channel is not closed.
+	public void generate(AST ast, WritableByteChannel channel) throws IOException {
+		ByteBuffer[] buffers = encode(ast);
+		if (buffers == null) {
+			generator.generate(ast, channel);
+			return;
+		}
+		if (channel instanceof GatheringByteChannel) {
+			GatheringByteChannel gathering = (GatheringByteChannel) channel;
+			int first = 0;
+			while (first < buffers.length) {
+				gathering.write(buffers, first, buffers.length - first);
+				while (first < buffers.length && !buffers[first].hasRemaining()) {
+					first++;
+				}
+			}
+		} else {
+			for (ByteBuffer buffer : buffers) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}
+	}
+
+	// Writes the CSS UTF-8 encoded. The stream is not flushed or closed.
+	public void generate(AST ast, OutputStream outputStream) throws IOException {
+		ByteBuffer[] buffers = encode(ast);
+		if (buffers == null) {
+			generator.generate(ast, outputStream);
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+	}
+
+	// The UTF-8 encoded CSS of every chunk, in order, or null when the stylesheet is too small to split
+	private ByteBuffer[] encode(AST ast) throws IOException {
+		ArrayList<ASTNode> body = ast.root.body;
+		int chunk = chunking.chunkSize(body.size());
+		if (body.size() <= chunk) {
+			return null;
+		}
+
+		ByteBuffer[] buffers = new ByteBuffer[chunkCount(body.size(), chunk)];
+		try {
+			render(buffers.length, index -> {
+				ChunkBuffer bytes = new ChunkBuffer();
+				generate(body, index, chunk, CssOutput.of(bytes));
+				buffers[index] = bytes.toByteBuffer();
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return buffers;
+	}
+
+	private static int chunkCount(int elements, int chunk) {
+		return (elements + chunk - 1) / chunk;
+	}
+
+	private void generate(ArrayList<ASTNode> body, int index, int chunk, CssOutput output) {
+		int start = index * chunk;
+		try {
+			generator.generate(body, start, Math.min(body.size(), start + chunk), output);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void render(int chunks, IntConsumer renderChunk) {
+		chunking.getPool().invoke(new Chunks(renderChunk, 0, chunks));
+	}
+
+	// Renders the chunks from start up to end
+	private static class Chunks extends RecursiveAction {
+
+		private final IntConsumer renderChunk;
+		private final int start;
+		private final int end;
+
+		Chunks(IntConsumer renderChunk, int start, int end) {
+			this.renderChunk = renderChunk;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new Chunks(renderChunk, start, middle), new Chunks(renderChunk, middle, end));
+			} else {
+				renderChunk.accept(start);
+			}
+		}
+	}
+
+	// Hands out its bytes without copying them
+	private static final class ChunkBuffer extends ByteArrayOutputStream {
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+}
@@ -8,6 +8,9 @@ import javafx.scene.control.TreeView;
 import javafx.scene.layout.BorderPane;
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTWalker;
+
+import java.util.ArrayList;
 
 public class ASTPane extends BorderPane {
 
@@ -51,13 +54,24 @@ public class ASTPane extends BorderPane {
         content.setRoot(astNodeToTreeItem(ast.root));
     }
     private TreeItem<ASTNode> astNodeToTreeItem(ASTNode astNode) {
-
-        TreeItem<ASTNode> tvNode = new TreeItem<ASTNode>(astNode);
-        tvNode.setExpanded(true);
-
-        for(ASTNode child : astNode.getChildren()) {
-            tvNode.getChildren().add(astNodeToTreeItem(child));
+        // The tree items of the nodes from the root down to the current one
+        ArrayList<TreeItem<ASTNode>> path = new ArrayList<>();
+        TreeItem<ASTNode> root = null;
+        ASTWalker walker = new ASTWalker(astNode);
+        while (walker.next()) {
+            if (!walker.isEnter()) {
+                path.remove(path.size() - 1);
+                continue;
+            }
+            TreeItem<ASTNode> tvNode = new TreeItem<ASTNode>(walker.node());
+            tvNode.setExpanded(true);
+            if (path.isEmpty()) {
+                root = tvNode;
+            } else {
+                path.get(path.size() - 1).getChildren().add(tvNode);
+            }
+            path.add(tvNode);
         }
-        return tvNode;
+        return root;
     }
 }
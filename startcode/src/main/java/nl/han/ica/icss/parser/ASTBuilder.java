@@ -0,0 +1,255 @@
+package nl.han.ica.icss.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.selectors.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+
+/**
+ * Builds the AST while the parser runs, as a parse listener, so no parse tree has to be built and walked afterwards.
+ * Together with the TreelessICSSParser this roughly halves what a parse allocates.
+ *
+ * Without a parse tree a rule context has no children, only its start and stop token.
+ * So every rule pushes its finished node on a stack when it exits. Container rules remember the stack size
+ * when they are entered and take everything above it as their children when they exit.
+ * Once the parser reports a syntax error building stops, the AST of invalid input is left empty.
+ */
+final class ASTBuilder extends ICSSBaseListener {
+
+	private final Parser parser;
+	private final List<ASTNode> nodes = new ArrayList<>();
+	private int[] marks = new int[16];
+	private int markCount = 0;
+	// Per open expression: the operator token type, or 0 for an operand
+	private int[] operators = new int[16];
+	private int operatorCount = 0;
+
+	private final List<Interval> elementIntervals = new ArrayList<>();
+	// The features seen so far, for AST.features
+	private int features = 0;
+	private AST ast = new AST();
+
+	ASTBuilder(Parser parser) {
+		this.parser = parser;
+	}
+
+	// Start over, after the first parsing stage gave up halfway
+	void reset() {
+		nodes.clear();
+		markCount = 0;
+		operatorCount = 0;
+		elementIntervals.clear();
+		features = 0;
+		ast = new AST();
+	}
+
+	AST getAST() {
+		return ast;
+	}
+
+	// The character interval of every top-level variable and style rule
+	List<Interval> getElementIntervals() {
+		return elementIntervals;
+	}
+
+	private boolean failed() {
+		return parser.getNumberOfSyntaxErrors() > 0;
+	}
+
+	private void mark() {
+		if (markCount == marks.length) {
+			marks = grow(marks);
+		}
+		marks[markCount++] = nodes.size();
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	// Pop everything pushed since the last mark into the given node
+	private ASTNode collect(ASTNode container) {
+		int mark = marks[--markCount];
+		List<ASTNode> children = nodes.subList(mark, nodes.size());
+		for (ASTNode child : children) {
+			container.addChild(child);
+		}
+		children.clear();
+		return container;
+	}
+
+	private void push(ASTNode node) {
+		if (!failed()) {
+			nodes.add(node);
+		}
+	}
+
+	@Override
+	public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
+		if (failed()) return;
+		ast = new AST((Stylesheet) collect(new Stylesheet()));
+		ast.features = features;
+	}
+
+	@Override
+	public void exitStylesheet_element(ICSSParser.Stylesheet_elementContext ctx) {
+		if (failed()) return;
+		elementIntervals.add(Interval.of(ctx.getStart().getStartIndex(), ctx.getStop().getStopIndex()));
+	}
+
+	@Override
+	public void enterStyle_rule(ICSSParser.Style_ruleContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitStyle_rule(ICSSParser.Style_ruleContext ctx) {
+		if (failed()) return;
+		push(collect(new Stylerule()));
+		// Only the stylesheet's mark is left under a top-level rule
+		if (markCount > 1) {
+			features |= AST.NESTED_RULES;
+		}
+	}
+
+	@Override
+	public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
+		if (failed()) return;
+		push(collect(new Declaration()));
+	}
+
+	// Known property names are shared with the property registry
+	@Override
+	public void exitProperty(ICSSParser.PropertyContext ctx) {
+		push(new PropertyName(PropertyRegistry.DEFAULT.intern(ctx.getStart().getText())));
+	}
+
+	@Override
+	public void exitSelector_element(ICSSParser.Selector_elementContext ctx) {
+		Token token = ctx.getStart();
+		switch (token.getType()) {
+			case ICSSParser.LOWER_IDENT:
+				push(new TagSelector(token.getText()));
+				break;
+			case ICSSParser.ID_IDENT:
+				push(new IdSelector(token.getText()));
+				break;
+			case ICSSParser.CLASS_IDENT:
+				push(new ClassSelector(token.getText()));
+				break;
+		}
+	}
+
+	// Antlr enters an operation's context after its lhs, right in front of the operator
+	@Override
+	public void enterExpression(ICSSParser.ExpressionContext ctx) {
+		if (operatorCount == operators.length) {
+			operators = grow(operators);
+		}
+		int next = parser.getInputStream().LA(1);
+		boolean operator = next == ICSSParser.MUL || next == ICSSParser.PLUS || next == ICSSParser.MIN;
+		operators[operatorCount++] = operator ? next : 0;
+	}
+
+	// Both operands are pushed before the operation's context exits, so the two top nodes are its lhs and rhs
+	@Override
+	public void exitExpression(ICSSParser.ExpressionContext ctx) {
+		// Error recovery can exit contexts it never entered
+		if (operatorCount == 0) return;
+		int operator = operators[--operatorCount];
+		if (operator == 0 || failed()) return;
+		features |= AST.OPERATIONS;
+		Operation operation;
+		if (operator == ICSSParser.MUL) {
+			operation = new MultiplyOperation();
+		} else if (operator == ICSSParser.PLUS) {
+			operation = new AddOperation();
+		} else {
+			operation = new SubtractOperation();
+		}
+		ASTNode rhs = nodes.remove(nodes.size() - 1);
+		ASTNode lhs = nodes.remove(nodes.size() - 1);
+		operation.addChild(lhs);
+		operation.addChild(rhs);
+		push(operation);
+	}
+
+	@Override
+	public void enterVariable(ICSSParser.VariableContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitVariable(ICSSParser.VariableContext ctx) {
+		if (failed()) return;
+		push(collect(new VariableAssignment()));
+	}
+
+	@Override
+	public void exitVariable_identifier(ICSSParser.Variable_identifierContext ctx) {
+		features |= AST.VARIABLES;
+		push(new VariableReference(ctx.getStart().getText()));
+	}
+
+	@Override
+	public void exitNumeric_value(ICSSParser.Numeric_valueContext ctx) {
+		Token token = ctx.getStart();
+		switch (token.getType()) {
+			case ICSSParser.PIXELSIZE:
+				push(new PixelLiteral(token.getText()));
+				break;
+			case ICSSParser.PERCENTAGE:
+				push(new PercentageLiteral(token.getText()));
+				break;
+			case ICSSParser.SCALAR:
+				push(new ScalarLiteral(token.getText()));
+				break;
+		}
+	}
+
+	@Override
+	public void exitBoolean_value(ICSSParser.Boolean_valueContext ctx) {
+		push(new BoolLiteral(ctx.getStart().getText()));
+	}
+
+	// Boolean literals are pushed by exitBoolean_value
+	@Override
+	public void exitLiteral(ICSSParser.LiteralContext ctx) {
+		Token token = ctx.getStart();
+		if (token.getType() == ICSSParser.COLOR) {
+			push(new ColorLiteral(token.getText()));
+		}
+	}
+
+	@Override
+	public void enterIf_statement(ICSSParser.If_statementContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitIf_statement(ICSSParser.If_statementContext ctx) {
+		if (failed()) return;
+		push(collect(new IfClause()));
+		features |= AST.IF_CLAUSES;
+	}
+}
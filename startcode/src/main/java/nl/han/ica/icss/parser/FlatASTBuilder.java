@@ -0,0 +1,235 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Token;
+
+import nl.han.ica.icss.ast.flat.FlatAST;
+
+/**
+ * Builds a FlatAST while the parser runs, the same way the ASTBuilder builds the object AST:
+ * every rule pushes its finished node on a stack when it exits, and container rules take everything
+ * pushed since they were entered as their children. The stack holds node numbers, so apart from the token
+ * texts, which are interned, nothing is allocated per node.
+ */
+final class FlatASTBuilder extends ICSSBaseListener {
+
+	private final Parser parser;
+	private FlatAST ast = new FlatAST();
+	private int[] nodes = new int[64];
+	private int nodeCount = 0;
+	private int[] marks = new int[16];
+	private int markCount = 0;
+	// Per open expression: the operator token type, or 0 for an operand
+	private int[] operators = new int[16];
+	private int operatorCount = 0;
+
+	FlatASTBuilder(Parser parser) {
+		this.parser = parser;
+	}
+
+	// Start over, after the first parsing stage gave up halfway
+	void reset() {
+		ast = new FlatAST();
+		nodeCount = 0;
+		markCount = 0;
+		operatorCount = 0;
+	}
+
+	FlatAST getAST() {
+		return ast;
+	}
+
+	private boolean failed() {
+		return parser.getNumberOfSyntaxErrors() > 0;
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private void mark() {
+		if (markCount == marks.length) {
+			marks = grow(marks);
+		}
+		marks[markCount++] = nodeCount;
+	}
+
+	// Pop everything pushed since the last mark into a new node of the given kind
+	private int collect(byte kind) {
+		int container = ast.add(kind, 0);
+		int mark = marks[--markCount];
+		for (int i = mark; i < nodeCount; i++) {
+			ast.appendChild(container, nodes[i]);
+		}
+		nodeCount = mark;
+		return container;
+	}
+
+	private void push(int node) {
+		if (nodeCount == nodes.length) {
+			nodes = grow(nodes);
+		}
+		nodes[nodeCount++] = node;
+	}
+
+	private void push(byte kind, int payload) {
+		if (!failed()) {
+			push(ast.add(kind, payload));
+		}
+	}
+
+	private void push(byte kind, String text) {
+		if (!failed()) {
+			push(ast.add(kind, text));
+		}
+	}
+
+	@Override
+	public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
+		if (failed()) return;
+		ast.setRoot(collect(FlatAST.STYLESHEET));
+		ast.trimToSize();
+	}
+
+	@Override
+	public void enterStyle_rule(ICSSParser.Style_ruleContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitStyle_rule(ICSSParser.Style_ruleContext ctx) {
+		if (failed()) return;
+		push(collect(FlatAST.STYLERULE));
+	}
+
+	@Override
+	public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
+		if (failed()) return;
+		push(collect(FlatAST.DECLARATION));
+	}
+
+	@Override
+	public void exitProperty(ICSSParser.PropertyContext ctx) {
+		push(FlatAST.PROPERTY_NAME, ctx.getStart().getText());
+	}
+
+	@Override
+	public void exitSelector_element(ICSSParser.Selector_elementContext ctx) {
+		Token token = ctx.getStart();
+		switch (token.getType()) {
+			case ICSSParser.LOWER_IDENT:
+				push(FlatAST.TAG_SELECTOR, token.getText());
+				break;
+			case ICSSParser.ID_IDENT:
+				push(FlatAST.ID_SELECTOR, token.getText());
+				break;
+			case ICSSParser.CLASS_IDENT:
+				push(FlatAST.CLASS_SELECTOR, token.getText());
+				break;
+		}
+	}
+
+	// Antlr enters an operation's context after its lhs, right in front of the operator
+	@Override
+	public void enterExpression(ICSSParser.ExpressionContext ctx) {
+		if (operatorCount == operators.length) {
+			operators = grow(operators);
+		}
+		int next = parser.getInputStream().LA(1);
+		boolean operator = next == ICSSParser.MUL || next == ICSSParser.PLUS || next == ICSSParser.MIN;
+		operators[operatorCount++] = operator ? next : 0;
+	}
+
+	// Both operands are pushed before the operation's context exits, so the two top nodes are its lhs and rhs
+	@Override
+	public void exitExpression(ICSSParser.ExpressionContext ctx) {
+		// Error recovery can exit contexts it never entered
+		if (operatorCount == 0) return;
+		int operator = operators[--operatorCount];
+		if (operator == 0 || failed()) return;
+		byte kind;
+		if (operator == ICSSParser.MUL) {
+			kind = FlatAST.MULTIPLY_OPERATION;
+		} else if (operator == ICSSParser.PLUS) {
+			kind = FlatAST.ADD_OPERATION;
+		} else {
+			kind = FlatAST.SUBTRACT_OPERATION;
+		}
+		int operation = ast.add(kind, 0);
+		ast.appendChild(operation, nodes[nodeCount - 2]);
+		ast.appendChild(operation, nodes[nodeCount - 1]);
+		nodeCount -= 2;
+		push(operation);
+	}
+
+	@Override
+	public void enterVariable(ICSSParser.VariableContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitVariable(ICSSParser.VariableContext ctx) {
+		if (failed()) return;
+		push(collect(FlatAST.VARIABLE_ASSIGNMENT));
+	}
+
+	@Override
+	public void exitVariable_identifier(ICSSParser.Variable_identifierContext ctx) {
+		push(FlatAST.VARIABLE_REFERENCE, ctx.getStart().getText());
+	}
+
+	// Parses the number in front of the unit, like the literal classes do
+	@Override
+	public void exitNumeric_value(ICSSParser.Numeric_valueContext ctx) {
+		Token token = ctx.getStart();
+		String text = token.getText();
+		switch (token.getType()) {
+			case ICSSParser.PIXELSIZE:
+				push(FlatAST.PIXEL_LITERAL, Integer.parseInt(text, 0, text.length() - 2, 10));
+				break;
+			case ICSSParser.PERCENTAGE:
+				push(FlatAST.PERCENTAGE_LITERAL, Integer.parseInt(text, 0, text.length() - 1, 10));
+				break;
+			case ICSSParser.SCALAR:
+				push(FlatAST.SCALAR_LITERAL, Integer.parseInt(text));
+				break;
+		}
+	}
+
+	@Override
+	public void exitBoolean_value(ICSSParser.Boolean_valueContext ctx) {
+		push(FlatAST.BOOL_LITERAL, ctx.getStart().getText().equals("TRUE") ? 1 : 0);
+	}
+
+	// Boolean literals are pushed by exitBoolean_value
+	@Override
+	public void exitLiteral(ICSSParser.LiteralContext ctx) {
+		Token token = ctx.getStart();
+		if (token.getType() == ICSSParser.COLOR) {
+			push(FlatAST.COLOR_LITERAL, token.getText());
+		}
+	}
+
+	@Override
+	public void enterIf_statement(ICSSParser.If_statementContext ctx) {
+		mark();
+	}
+
+	@Override
+	public void exitIf_statement(ICSSParser.If_statementContext ctx) {
+		if (failed()) return;
+		push(collect(FlatAST.IF_CLAUSE));
+	}
+}
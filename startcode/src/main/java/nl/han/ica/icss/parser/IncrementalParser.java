@@ -0,0 +1,203 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AST of a document up to date while the document is being edited.
+ *
+ * An edit only re-lexes and reparses the top-level variables and style rules it touches. Their new subtrees
+ * replace the old ones in the existing Stylesheet, every other node stays the same object.
+ * When the edited text does not parse on its own (an unbalanced brace for example), or the previous version
+ * had syntax errors, the whole document is parsed again, so errors are reported exactly as by a full parse.
+ *
+ * The AST is changed in place. The checker and the transforms change it as well, so run those on a fresh parse.
+ * An IncrementalParser is not thread-safe.
+ */
+public class IncrementalParser {
+
+    private final StylesheetParser parser;
+
+    private String text = "";
+    private AST ast = new AST();
+
+    // Character offsets of the top-level elements, end exclusive. Only known when the last version had no errors.
+    private boolean intervalsKnown = false;
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int count = 0;
+
+    public IncrementalParser() {
+        this(new StylesheetParser());
+    }
+
+    public IncrementalParser(StylesheetParser parser) {
+        this.parser = parser;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+
+    /**
+     * Parses a complete document, replacing the current one.
+     */
+    public AST parse(String text, List<String> errors) {
+        List<Interval> intervals = new ArrayList<>();
+        List<String> parseErrors = new ArrayList<>();
+        this.text = text;
+        this.ast = parser.parse(CharStreams.fromString(text), parseErrors, intervals);
+        errors.addAll(parseErrors);
+
+        intervalsKnown = parseErrors.isEmpty() && intervals.size() == ast.root.body.size();
+        count = 0;
+        if (intervalsKnown) {
+            ensureCapacity(intervals.size());
+            for (Interval interval : intervals) {
+                starts[count] = interval.a;
+                ends[count] = interval.b + 1;
+                count++;
+            }
+        }
+        return ast;
+    }
+
+    /**
+     * Applies an edit to the document: removedLength characters at offset are replaced by insertedText.
+     * Syntax errors are added to the given list, like StylesheetParser.parse does.
+     */
+    public AST edit(int offset, int removedLength, String insertedText, List<String> errors) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removedLength + " outside document of length " + text.length());
+        }
+        int editEnd = offset + removedLength;
+        String newText = text.substring(0, offset) + insertedText + text.substring(editEnd);
+        if (!intervalsKnown) {
+            return parse(newText, errors);
+        }
+
+        // Elements touching the edit, including the ones that end right before or start right after it,
+        // because the edit could join their first or last token with the inserted text.
+        int first = firstEndingAtOrAfter(offset);
+        int last = lastStartingAtOrBefore(editEnd);
+        int regionStart = first <= last ? Math.min(offset, starts[first]) : offset;
+        int regionEnd = first <= last ? Math.max(editEnd, ends[last]) : editEnd;
+        int delta = insertedText.length() - removedLength;
+        String region = newText.substring(regionStart, regionEnd + delta);
+
+        List<Interval> intervals = new ArrayList<>();
+        List<ASTNode> elements = new ArrayList<>();
+        if (!region.trim().isEmpty()) {
+            List<String> regionErrors = new ArrayList<>();
+            AST regionAst = parser.parse(CharStreams.fromString(region), regionErrors, intervals);
+            if (!regionErrors.isEmpty() || intervals.size() != regionAst.root.body.size()) {
+                // The edited text only makes sense together with its surroundings, or not at all
+                return parse(newText, errors);
+            }
+            elements = regionAst.root.body;
+            // Features of removed elements stay claimed, which only costs a transform some work
+            ast.features |= regionAst.features;
+        }
+        int removedElements = first <= last ? last - first + 1 : 0;
+        if (count - removedElements + elements.size() == 0) {
+            // Let a full parse report the empty stylesheet
+            return parse(newText, errors);
+        }
+
+        // Splice the new subtrees into the stylesheet
+        List<ASTNode> body = ast.root.body;
+        body.subList(first, first + removedElements).clear();
+        body.addAll(first, elements);
+        spliceIntervals(first, removedElements, intervals, regionStart, delta);
+        text = newText;
+        return ast;
+    }
+
+    /**
+     * Brings the document up to date with newText, reparsing only what changed between the current text and it.
+     * Useful for editors that only hand over their complete text.
+     */
+    public AST update(String newText, List<String> errors) {
+        int prefix = 0;
+        int maxPrefix = Math.min(text.length(), newText.length());
+        while (prefix < maxPrefix && text.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && text.charAt(text.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return edit(prefix, text.length() - prefix - suffix, newText.substring(prefix, newText.length() - suffix), errors);
+    }
+
+    private void spliceIntervals(int first, int removedElements, List<Interval> intervals, int regionStart, int delta) {
+        int tail = count - first - removedElements;
+        int newCount = first + intervals.size() + tail;
+        int[] newStarts = starts;
+        int[] newEnds = ends;
+        if (newCount > starts.length) {
+            newStarts = new int[Math.max(newCount, starts.length * 2)];
+            newEnds = new int[newStarts.length];
+            System.arraycopy(starts, 0, newStarts, 0, first);
+            System.arraycopy(ends, 0, newEnds, 0, first);
+        }
+        System.arraycopy(starts, first + removedElements, newStarts, first + intervals.size(), tail);
+        System.arraycopy(ends, first + removedElements, newEnds, first + intervals.size(), tail);
+        for (int i = 0; i < intervals.size(); i++) {
+            newStarts[first + i] = regionStart + intervals.get(i).a;
+            newEnds[first + i] = regionStart + intervals.get(i).b + 1;
+        }
+        for (int i = first + intervals.size(); i < newCount; i++) {
+            newStarts[i] += delta;
+            newEnds[i] += delta;
+        }
+        starts = newStarts;
+        ends = newEnds;
+        count = newCount;
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int lastStartingAtOrBefore(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (starts.length < capacity) {
+            starts = new int[capacity];
+            ends = new int[capacity];
+        }
+    }
+}
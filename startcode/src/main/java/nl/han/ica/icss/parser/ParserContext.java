@@ -0,0 +1,46 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+/**
+ * A lexer, token stream and parser that are reused for many inputs.
+ * Creating them is cheap compared to parsing, but for many small files the allocations add up.
+ * A context is used by one thread at a time; the StylesheetParser keeps a pool of them.
+ */
+final class ParserContext {
+
+    final ICSSLexer lexer;
+    final CommonTokenStream tokens;
+    final ICSSParser parser;
+
+    // Pointed at when idle, so a pooled context does not keep the previous input alive
+    private final CharStream empty = CharStreams.fromString("");
+
+    ParserContext() {
+        lexer = new ICSSLexer(empty);
+        tokens = new CommonTokenStream(lexer);
+        parser = new TreelessICSSParser(tokens);
+        clear();
+    }
+
+    // Point the context at new input
+    void reset(CharStream input, ANTLRErrorListener errorListener) {
+        lexer.setInputStream(input);
+        lexer.addErrorListener(errorListener);
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+    }
+
+    // Drop every reference to the last input
+    void clear() {
+        lexer.setInputStream(empty);
+        lexer.removeErrorListeners();
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        parser.removeErrorListeners();
+        parser.removeParseListeners();
+    }
+}
@@ -0,0 +1,111 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Creates the lexer's CharStream from the different kinds of input, without first reading it into a String.
+ */
+public final class SourceStreams {
+
+    // Below this size mapping a file costs more than reading it
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private SourceStreams() {
+    }
+
+    /**
+     * Large ASCII files are memory-mapped and lexed straight from the mapping,
+     * other files are decoded as UTF-8 into Antlr's code point buffer.
+     */
+    public static CharStream fromPath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPING_THRESHOLD && size <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (isAscii(mapping)) {
+                    return new ByteBufferCharStream(mapping, path.toString());
+                }
+                // UTF-8 beyond ASCII, decode the mapping instead of reading the file again
+                return CharStreams.fromChannel(new ByteBufferChannel(mapping), StandardCharsets.UTF_8, BUFFER_SIZE,
+                        CodingErrorAction.REPLACE, path.toString(), size);
+            }
+            return CharStreams.fromChannel(channel, StandardCharsets.UTF_8, BUFFER_SIZE,
+                    CodingErrorAction.REPLACE, path.toString(), size);
+        }
+    }
+
+    public static CharStream fromReader(Reader reader) throws IOException {
+        return CharStreams.fromReader(reader);
+    }
+
+    public static CharStream fromStream(InputStream inputStream) throws IOException {
+        return CharStreams.fromStream(inputStream, StandardCharsets.UTF_8);
+    }
+
+    public static CharStream fromChannel(ReadableByteChannel channel) throws IOException {
+        return CharStreams.fromChannel(channel, StandardCharsets.UTF_8);
+    }
+
+    // Checks eight bytes at a time for a set high bit
+    static boolean isAscii(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        for (; position + Long.BYTES <= limit; position += Long.BYTES) {
+            if ((buffer.getLong(position) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; position < limit; position++) {
+            if (buffer.get(position) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Presents a mapped buffer as a channel, so CharStreams can decode it without an extra read
+    private static class ByteBufferChannel implements ReadableByteChannel {
+        private final ByteBuffer buffer;
+
+        ByteBufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        @Override
+        public int read(ByteBuffer target) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(target.remaining(), buffer.remaining());
+            ByteBuffer chunk = buffer.slice();
+            chunk.limit(count);
+            target.put(chunk);
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.flat.FlatAST;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns ICSS source into an AST with Antlr's generated lexer and parser.
+ * The AST is built by an ASTBuilder while parsing, no parse tree is kept.
+ * Every call takes a lexer and parser from a concurrent pool of idle ones, so calls on many threads never share them.
+ *
+ * By default parsing is done in two stages: first with the faster SLL prediction and an error strategy that
+ * bails out on the first error, and only when that fails again from the start with full LL prediction and
+ * the regular error reporting. Valid input is parsed by the first stage, invalid input gets the same
+ * error messages as a single full LL parse.
+ */
+public class StylesheetParser {
+
+    private final boolean twoStage;
+    private final boolean buildParseTree;
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final Queue<ParserContext> pool = new ConcurrentLinkedQueue<>();
+
+    public StylesheetParser() {
+        this(true);
+    }
+
+    /**
+     * @param twoStage try SLL prediction first, or always parse with full LL prediction
+     */
+    public StylesheetParser(boolean twoStage) {
+        this(twoStage, false);
+    }
+
+    /**
+     * @param twoStage       try SLL prediction first, or always parse with full LL prediction
+     * @param buildParseTree build Antlr's parse tree and walk it with the ASTListener afterwards, instead of
+     *                       building the AST while parsing. Only useful to compare the two.
+     */
+    public StylesheetParser(boolean twoStage, boolean buildParseTree) {
+        this.twoStage = twoStage;
+        this.buildParseTree = buildParseTree;
+    }
+
+    /**
+     * Parses the input. Syntax errors are added to the given list, in which case the returned AST is empty or partial.
+     */
+    public AST parse(CharStream input, List<String> errors) {
+        return parse(input, errors, null);
+    }
+
+    /**
+     * Parses the input and, when it has no syntax errors, adds the character interval of every
+     * top-level variable and style rule to elementIntervals, in the same order as the Stylesheet's body.
+     */
+    AST parse(CharStream input, List<String> errors, List<Interval> elementIntervals) {
+        ErrorCollector errorCollector = new ErrorCollector(errors);
+        ParserContext context = acquire();
+        try {
+            //Lex and parse (with Antlr's generated lexer and parser)
+            context.reset(input, errorCollector);
+            parses.increment();
+
+            if (!buildParseTree) {
+                return parseWithBuilder(context, errorCollector, errors, elementIntervals);
+            }
+
+            context.parser.setBuildParseTree(true);
+            ParseTree parseTree = twoStage ? parseTwoStage(context, errorCollector, () -> context.tokens.seek(0)) : parseLL(context, errorCollector);
+
+            //Extract AST from the Antlr parse tree
+            ASTListener listener = new ASTListener();
+            ParseTreeWalker walker = new ParseTreeWalker();
+            walker.walk(listener, parseTree);
+
+            if (elementIntervals != null && errors.isEmpty()) {
+                for (ICSSParser.Stylesheet_elementContext element : ((ICSSParser.StylesheetContext) parseTree).stylesheet_element()) {
+                    elementIntervals.add(Interval.of(element.getStart().getStartIndex(), element.getStop().getStopIndex()));
+                }
+            }
+            return listener.getAST();
+
+        } catch (RecognitionException e) {
+            errors.add(e.getMessage());
+            return new AST();
+
+        } catch (ParseCancellationException e) {
+            errors.add("Syntax error");
+            return new AST();
+
+        } finally {
+            context.clear();
+            pool.offer(context);
+        }
+    }
+
+    public AST parse(String input, List<String> errors) {
+        return parse(CharStreams.fromString(input), errors);
+    }
+
+    /**
+     * Parses a file. Large ASCII files are memory-mapped and lexed without copying them.
+     */
+    public AST parse(Path path, List<String> errors) throws IOException {
+        return parse(SourceStreams.fromPath(path), errors);
+    }
+
+    public AST parse(Reader reader, List<String> errors) throws IOException {
+        return parse(SourceStreams.fromReader(reader), errors);
+    }
+
+    // UTF-8 encoded input
+    public AST parse(InputStream inputStream, List<String> errors) throws IOException {
+        return parse(SourceStreams.fromStream(inputStream), errors);
+    }
+
+    // UTF-8 encoded input
+    public AST parse(ReadableByteChannel channel, List<String> errors) throws IOException {
+        return parse(SourceStreams.fromChannel(channel), errors);
+    }
+
+    /**
+     * Parses the input into a FlatAST, for stylesheets too large to hold as an object AST.
+     * Syntax errors are added to the given list, in which case the returned FlatAST has no root.
+     * The FlatAST is always built while parsing, also by a parser that builds parse trees.
+     */
+    public FlatAST parseFlat(CharStream input, List<String> errors) {
+        ErrorCollector errorCollector = new ErrorCollector(errors);
+        int errorCount = errors.size();
+        ParserContext context = acquire();
+        try {
+            context.reset(input, errorCollector);
+            parses.increment();
+
+            // A FlatAST is for the largest inputs, where keeping every token until the parse is done takes more
+            // memory than the AST itself. An unbuffered stream only keeps the tokens the parser still looks at.
+            context.parser.setTokenStream(new UnbufferedTokenStream<Token>(context.lexer));
+            FlatASTBuilder builder = new FlatASTBuilder(context.parser);
+            context.parser.setBuildParseTree(false);
+            context.parser.addParseListener(builder);
+            if (twoStage) {
+                // An unbuffered stream can not seek back, so the input is lexed again. The lexer reports its
+                // errors again as well, so the ones of the first stage are dropped.
+                parseTwoStage(context, errorCollector, () -> {
+                    errors.subList(errorCount, errors.size()).clear();
+                    context.lexer.reset();
+                    context.parser.setTokenStream(new UnbufferedTokenStream<Token>(context.lexer));
+                    builder.reset();
+                });
+            } else {
+                parseLL(context, errorCollector);
+            }
+            return builder.getAST();
+
+        } catch (RecognitionException e) {
+            errors.add(e.getMessage());
+            return new FlatAST();
+
+        } catch (ParseCancellationException e) {
+            errors.add("Syntax error");
+            return new FlatAST();
+
+        } finally {
+            context.clear();
+            pool.offer(context);
+        }
+    }
+
+    /**
+     * Parses a file into a FlatAST. Large ASCII files are memory-mapped and lexed without copying them.
+     */
+    public FlatAST parseFlat(Path path, List<String> errors) throws IOException {
+        return parseFlat(SourceStreams.fromPath(path), errors);
+    }
+
+    // Builds the AST as rules are exited; every rule context can be collected as soon as its rule is done
+    private AST parseWithBuilder(ParserContext context, ErrorCollector errorCollector, List<String> errors,
+                                 List<Interval> elementIntervals) {
+        ASTBuilder builder = new ASTBuilder(context.parser);
+        context.parser.setBuildParseTree(false);
+        context.parser.addParseListener(builder);
+        if (twoStage) {
+            parseTwoStage(context, errorCollector, () -> {
+                context.tokens.seek(0);
+                builder.reset();
+            });
+        } else {
+            parseLL(context, errorCollector);
+        }
+
+        if (elementIntervals != null && errors.isEmpty()) {
+            elementIntervals.addAll(builder.getElementIntervals());
+        }
+        return builder.getAST();
+    }
+
+    // When the first stage fails halfway, rewind puts the tokens back at the start and resets the builder, if any
+    private ParseTree parseTwoStage(ParserContext context, ErrorCollector errorCollector, Runnable rewind) {
+        ICSSParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return parser.stylesheet();
+        } catch (ParseCancellationException e) {
+            // Either a syntax error or a construct SLL can not handle; rewind and let full LL decide
+            fallbacks.increment();
+            rewind.run();
+            parser.reset();
+            return parseLL(context, errorCollector);
+        }
+    }
+
+    private ParseTree parseLL(ParserContext context, ErrorCollector errorCollector) {
+        ICSSParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.addErrorListener(errorCollector);
+        return parser.stylesheet();
+    }
+
+    private ParserContext acquire() {
+        ParserContext context = pool.poll();
+        return context != null ? context : new ParserContext();
+    }
+
+    /**
+     * Parses the example stylesheets that ship with the tool.
+     * Antlr builds its prediction DFA lazily and shares it between all parsers in the JVM,
+     * so after a warm-up the first real file no longer pays for building it.
+     */
+    public void warmUp() {
+        for (String resource : WarmupProfile.BUNDLED_EXAMPLES) {
+            try (InputStream inputStream = StylesheetParser.class.getClassLoader().getResourceAsStream(resource)) {
+                if (inputStream != null) {
+                    parse(CharStreams.fromStream(inputStream, StandardCharsets.UTF_8), new ArrayList<>());
+                }
+            } catch (IOException e) {
+                // A missing example only makes the warm-up less effective
+            }
+        }
+    }
+
+    /**
+     * @return the number of inputs parsed by this parser
+     */
+    public long getParseCount() {
+        return parses.sum();
+    }
+
+    /**
+     * @return how often the SLL stage failed and the input was parsed again with full LL prediction
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    //Catch ANTLR errors
+    private static class ErrorCollector extends BaseErrorListener {
+        private final List<String> errors;
+
+        ErrorCollector(List<String> errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            errors.add("Syntax error: " + msg);
+        }
+    }
+}
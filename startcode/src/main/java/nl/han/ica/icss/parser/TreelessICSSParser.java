@@ -0,0 +1,28 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+
+/**
+ * An ICSSParser that does not create terminal nodes when it is not building a parse tree.
+ * Antlr also creates them whenever a parse listener is attached, adding a node and a child list to every
+ * rule context, but the ASTBuilder reads the tokens it needs from the contexts' start tokens instead.
+ */
+final class TreelessICSSParser extends ICSSParser {
+
+    TreelessICSSParser(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public Token consume() {
+        if (getBuildParseTree()) {
+            return super.consume();
+        }
+        Token token = getCurrentToken();
+        if (token.getType() != Token.EOF) {
+            getInputStream().consume();
+        }
+        return token;
+    }
+}
@@ -0,0 +1,88 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persists what the parser has to predict, so the prediction DFA can be rebuilt quickly in a new JVM.
+ *
+ * Antlr 4.7 can not serialize its DFA, so instead of the DFA itself the profile stores the tokens of
+ * representative stylesheets, without comments or whitespace and cut off after a fixed number of tokens.
+ * Loading parses them with a StylesheetParser, which fills the DFA that all lexers and parsers in the JVM
+ * share and leaves warmed up lexers and parsers in its pool. A profile recorded for another version of
+ * the grammar is ignored.
+ */
+public final class WarmupProfile {
+
+    static final List<String> BUNDLED_EXAMPLES = Arrays.asList("level0.icss", "level1.icss", "level2.icss", "level3.icss");
+
+    private static final int MAGIC = 0x49435353; // "ICSS"
+    // Long inputs are cut off, the first tokens already cover every decision the parser makes
+    private static final int MAX_TOKENS_PER_SAMPLE = 50_000;
+
+    private WarmupProfile() {
+    }
+
+    /**
+     * Lexes the samples and writes their tokens to the given file.
+     */
+    public static void save(Path file, List<? extends CharSequence> samples) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(grammarFingerprint());
+            out.writeInt(samples.size());
+            for (CharSequence sample : samples) {
+                ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(sample.toString()));
+                lexer.removeErrorListeners();
+                List<? extends Token> tokens = lexer.getAllTokens();
+                int count = Math.min(tokens.size(), MAX_TOKENS_PER_SAMPLE);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeUTF(tokens.get(i).getText());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays a saved profile through the given parser.
+     *
+     * @return false when the profile was recorded for a different grammar and nothing was loaded
+     */
+    public static boolean load(Path file, StylesheetParser parser) throws IOException {
+        List<String> samples = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a warm-up profile");
+            }
+            if (in.readInt() != grammarFingerprint()) {
+                return false;
+            }
+            int sampleCount = in.readInt();
+            for (int i = 0; i < sampleCount; i++) {
+                int tokenCount = in.readInt();
+                StringBuilder sample = new StringBuilder();
+                for (int j = 0; j < tokenCount; j++) {
+                    sample.append(in.readUTF()).append(' ');
+                }
+                samples.add(sample.toString());
+            }
+        }
+        for (String sample : samples) {
+            // Cut off samples end with a syntax error, everything before it has been predicted
+            parser.parse(sample, new ArrayList<>());
+        }
+        return true;
+    }
+
+    private static int grammarFingerprint() {
+        return 31 * ICSSLexer._serializedATN.hashCode() + ICSSParser._serializedATN.hashCode();
+    }
+}
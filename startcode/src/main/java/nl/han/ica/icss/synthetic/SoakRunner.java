@@ -0,0 +1,138 @@
+package nl.han.ica.icss.synthetic;
+
+import nl.han.ica.icss.Pipeline;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles generated stylesheets through the Pipeline over and over and keeps track of
+ * the slowest compile and the highest heap usage seen.
+ *
+ * Usage: java nl.han.ica.icss.synthetic.SoakRunner [rules] [iterations] [maxMillis] [maxHeapMegabytes] [seed]
+ */
+public class SoakRunner {
+
+    private final StylesheetShape shape;
+    private final int iterations;
+    private final long seed;
+
+    public SoakRunner(StylesheetShape shape, int iterations, long seed) {
+        this.shape = shape;
+        this.iterations = iterations;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs all iterations. Every iteration uses a different seed derived from the base seed,
+     * so a failure can be reproduced by rerunning with the reported seed.
+     */
+    public Report run() {
+        Report report = new Report();
+        List<MemoryPoolMXBean> heapPools = heapPools();
+
+        for (int i = 0; i < iterations; i++) {
+            long iterationSeed = seed + i;
+            String source = new StylesheetGenerator(iterationSeed).generate(shape);
+
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long start = System.nanoTime();
+
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+            boolean compiled = pipeline.isParsed() && pipeline.check();
+            if (compiled) {
+                pipeline.transform();
+                pipeline.generate();
+            }
+
+            long elapsed = System.nanoTime() - start;
+            long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+            if (!compiled) {
+                throw new IllegalStateException("Generated stylesheet with seed " + iterationSeed
+                        + " did not compile: " + pipeline.getErrors());
+            }
+            report.add(elapsed, peakHeap);
+        }
+        return report;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        pools.removeIf(pool -> pool.getType() != MemoryType.HEAP || !pool.isValid());
+        return pools;
+    }
+
+    /**
+     * Wall-clock time and peak heap usage over all iterations.
+     */
+    public static class Report {
+        private int iterations;
+        private long totalNanos;
+        private long maxNanos;
+        private long maxHeapBytes;
+
+        private void add(long nanos, long heapBytes) {
+            iterations++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            maxHeapBytes = Math.max(maxHeapBytes, heapBytes);
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+        }
+
+        public long getAverageMillis() {
+            return iterations == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / iterations);
+        }
+
+        public long getMaxHeapBytes() {
+            return maxHeapBytes;
+        }
+
+        /**
+         * Throws an AssertionError when the slowest compile or the highest heap usage exceeds the given ceiling.
+         */
+        public void assertWithin(long maxMillis, long maxHeapBytes) {
+            if (getMaxMillis() > maxMillis) {
+                throw new AssertionError("Slowest compile took " + getMaxMillis() + "ms, ceiling is " + maxMillis + "ms");
+            }
+            if (this.maxHeapBytes > maxHeapBytes) {
+                throw new AssertionError("Peak heap usage was " + this.maxHeapBytes + " bytes, ceiling is " + maxHeapBytes + " bytes");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return iterations + " iterations, average " + getAverageMillis() + "ms, slowest " + getMaxMillis()
+                    + "ms, peak heap " + (maxHeapBytes / (1024 * 1024)) + "MB";
+        }
+    }
+
+    public static void main(String[] args) {
+        int rules = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long maxMillis = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+        long maxHeapBytes = args.length > 3 ? Long.parseLong(args[3]) * 1024 * 1024 : Long.MAX_VALUE;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        StylesheetShape shape = new StylesheetShape().rules(rules);
+        Report report = new SoakRunner(shape, iterations, seed).run();
+        System.out.println(shape + ": " + report);
+        try {
+            report.assertWithin(maxMillis, maxHeapBytes);
+        } catch (AssertionError e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
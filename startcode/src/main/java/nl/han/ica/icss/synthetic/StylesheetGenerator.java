@@ -0,0 +1,222 @@
+package nl.han.ica.icss.synthetic;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates valid ICSS of a configurable shape for scale and soak testing.
+ * The output only depends on the seed and the shape, so every run with the same arguments produces the same text.
+ */
+public class StylesheetGenerator {
+
+    private static final String[] TAGS = {"p", "a", "div", "span", "ul", "li", "table", "section"};
+    // The types variables are given, in order of creation
+    private static final ExpressionType[] VARIABLE_TYPES = {
+            ExpressionType.PIXEL, ExpressionType.PERCENTAGE, ExpressionType.COLOR, ExpressionType.BOOL, ExpressionType.SCALAR
+    };
+
+    private final long seed;
+
+    public StylesheetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public String generate(StylesheetShape shape) {
+        StringBuilder builder = new StringBuilder();
+        generate(shape, builder);
+        return builder.toString();
+    }
+
+    public void generate(StylesheetShape shape, StringBuilder builder) {
+        Random random = new Random(seed);
+        Map<ExpressionType, List<String>> globals = newScope();
+
+        for (int i = 0; i < shape.getGlobalVariables(); i++) {
+            ExpressionType type = VARIABLE_TYPES[i % VARIABLE_TYPES.length];
+            String name = "Global" + i;
+            appendAssignment(builder, 0, name, type, random);
+            globals.get(type).add(name);
+        }
+        builder.append('\n');
+
+        for (int rule = 0; rule < shape.getRules(); rule++) {
+            Map<ExpressionType, List<String>> scope = copyScope(globals);
+
+            appendSelectors(builder, rule, shape.getSelectorWidth());
+            builder.append(" {\n");
+            for (int i = 0; i < shape.getScopedVariables(); i++) {
+                ExpressionType type = VARIABLE_TYPES[i % VARIABLE_TYPES.length];
+                String name = "Local" + rule + "_" + i;
+                appendAssignment(builder, 1, name, type, random);
+                scope.get(type).add(name);
+            }
+            appendDeclarations(builder, 1, shape, scope, random);
+            appendIfClauses(builder, 1, shape.getIfDepth(), scope, random);
+            appendNestedRules(builder, 1, rule, shape.getNestingDepth(), shape, scope, random);
+            builder.append("}\n");
+        }
+    }
+
+    private void appendSelectors(StringBuilder builder, int rule, int width) {
+        // The first selector varies in kind, the rest are unique classes so there are never duplicates
+        switch (rule % 3) {
+            case 0:
+                builder.append(TAGS[(rule / 3) % TAGS.length]);
+                break;
+            case 1:
+                builder.append("#id-").append(rule);
+                break;
+            default:
+                builder.append(".class-").append(rule);
+        }
+        for (int i = 1; i < width; i++) {
+            builder.append(", .class-").append(rule).append('-').append(i);
+        }
+    }
+
+    private void appendDeclarations(StringBuilder builder, int indent, StylesheetShape shape,
+                                    Map<ExpressionType, List<String>> scope, Random random) {
+        indent(builder, indent).append("color: ");
+        appendColor(builder, scope, random);
+        builder.append(";\n");
+
+        indent(builder, indent).append("width: ");
+        appendExpression(builder, ExpressionType.PIXEL, shape.getExpressionLength(), scope, random);
+        builder.append(";\n");
+
+        indent(builder, indent).append("height: ");
+        appendExpression(builder, ExpressionType.PERCENTAGE, shape.getExpressionLength(), scope, random);
+        builder.append(";\n");
+    }
+
+    private void appendIfClauses(StringBuilder builder, int indent, int depth,
+                                 Map<ExpressionType, List<String>> scope, Random random) {
+        if (depth == 0) {
+            return;
+        }
+        indent(builder, indent).append("if[");
+        List<String> booleans = scope.get(ExpressionType.BOOL);
+        if (!booleans.isEmpty() && random.nextBoolean()) {
+            builder.append(pick(booleans, random));
+        } else {
+            builder.append(random.nextInt(4) == 0 ? "FALSE" : "TRUE");
+        }
+        builder.append("] {\n");
+
+        indent(builder, indent + 1).append("background-color: ");
+        appendColor(builder, scope, random);
+        builder.append(";\n");
+        appendIfClauses(builder, indent + 1, depth - 1, scope, random);
+
+        indent(builder, indent).append("}\n");
+    }
+
+    private void appendNestedRules(StringBuilder builder, int indent, int rule, int depth, StylesheetShape shape,
+                                   Map<ExpressionType, List<String>> scope, Random random) {
+        if (depth == 0) {
+            return;
+        }
+        indent(builder, indent).append(".nested-").append(rule).append('-').append(depth).append(" {\n");
+
+        indent(builder, indent + 1).append("width: ");
+        appendExpression(builder, ExpressionType.PIXEL, shape.getExpressionLength(), scope, random);
+        builder.append(";\n");
+        appendNestedRules(builder, indent + 1, rule, depth - 1, shape, scope, random);
+
+        indent(builder, indent).append("}\n");
+    }
+
+    private void appendAssignment(StringBuilder builder, int indent, String name, ExpressionType type, Random random) {
+        indent(builder, indent).append(name).append(" := ");
+        appendLiteral(builder, type, random);
+        builder.append(";\n");
+    }
+
+    // Sums and differences of operands of the given unit, where an operand is optionally multiplied by a scalar.
+    private void appendExpression(StringBuilder builder, ExpressionType type, int length,
+                                  Map<ExpressionType, List<String>> scope, Random random) {
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append(random.nextBoolean() ? " + " : " - ");
+            }
+            if (random.nextInt(3) == 0) {
+                appendOperand(builder, ExpressionType.SCALAR, scope, random);
+                builder.append(" * ");
+            }
+            appendOperand(builder, type, scope, random);
+        }
+    }
+
+    private void appendColor(StringBuilder builder, Map<ExpressionType, List<String>> scope, Random random) {
+        appendOperand(builder, ExpressionType.COLOR, scope, random);
+    }
+
+    private void appendOperand(StringBuilder builder, ExpressionType type,
+                               Map<ExpressionType, List<String>> scope, Random random) {
+        List<String> variables = scope.get(type);
+        if (!variables.isEmpty() && random.nextBoolean()) {
+            builder.append(pick(variables, random));
+        } else {
+            appendLiteral(builder, type, random);
+        }
+    }
+
+    private void appendLiteral(StringBuilder builder, ExpressionType type, Random random) {
+        switch (type) {
+            case PIXEL:
+                builder.append(random.nextInt(1000)).append("px");
+                break;
+            case PERCENTAGE:
+                builder.append(random.nextInt(100)).append('%');
+                break;
+            case COLOR:
+                builder.append('#');
+                String hex = Integer.toHexString(random.nextInt(0x1000000));
+                for (int i = hex.length(); i < 6; i++) {
+                    builder.append('0');
+                }
+                builder.append(hex);
+                break;
+            case BOOL:
+                builder.append(random.nextBoolean() ? "TRUE" : "FALSE");
+                break;
+            case SCALAR:
+                builder.append(1 + random.nextInt(9));
+                break;
+            default:
+                throw new IllegalArgumentException("Can not generate a literal of type " + type);
+        }
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static StringBuilder indent(StringBuilder builder, int indent) {
+        for (int i = 0; i < indent; i++) {
+            builder.append('\t');
+        }
+        return builder;
+    }
+
+    private static Map<ExpressionType, List<String>> newScope() {
+        Map<ExpressionType, List<String>> scope = new EnumMap<>(ExpressionType.class);
+        for (ExpressionType type : VARIABLE_TYPES) {
+            scope.put(type, new ArrayList<>());
+        }
+        return scope;
+    }
+
+    private static Map<ExpressionType, List<String>> copyScope(Map<ExpressionType, List<String>> scope) {
+        Map<ExpressionType, List<String>> copy = new EnumMap<>(ExpressionType.class);
+        for (Map.Entry<ExpressionType, List<String>> entry : scope.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
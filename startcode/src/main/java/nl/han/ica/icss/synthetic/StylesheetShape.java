@@ -0,0 +1,112 @@
+package nl.han.ica.icss.synthetic;
+
+/**
+ * Describes the shape of a generated stylesheet.
+ * The setters return this, so a shape can be configured in a single expression.
+ */
+public class StylesheetShape {
+
+    private int globalVariables = 8;
+    private int scopedVariables = 1;
+    private int rules = 100;
+    private int ifDepth = 1;
+    private int nestingDepth = 1;
+    private int expressionLength = 3;
+    private int selectorWidth = 1;
+
+    // Number of VariableAssignments at stylesheet level
+    public StylesheetShape globalVariables(int globalVariables) {
+        this.globalVariables = requireNotNegative(globalVariables);
+        return this;
+    }
+
+    // Number of VariableAssignments at the start of every top level stylerule
+    public StylesheetShape scopedVariables(int scopedVariables) {
+        this.scopedVariables = requireNotNegative(scopedVariables);
+        return this;
+    }
+
+    // Number of top level stylerules
+    public StylesheetShape rules(int rules) {
+        this.rules = requireNotNegative(rules);
+        return this;
+    }
+
+    // How deep if clauses are nested inside every stylerule
+    public StylesheetShape ifDepth(int ifDepth) {
+        this.ifDepth = requireNotNegative(ifDepth);
+        return this;
+    }
+
+    // How deep stylerules are nested inside every top level stylerule
+    public StylesheetShape nestingDepth(int nestingDepth) {
+        this.nestingDepth = requireNotNegative(nestingDepth);
+        return this;
+    }
+
+    // Number of operands in the width and height expressions
+    public StylesheetShape expressionLength(int expressionLength) {
+        if (expressionLength < 1) {
+            throw new IllegalArgumentException("An expression needs at least one operand");
+        }
+        this.expressionLength = expressionLength;
+        return this;
+    }
+
+    // Number of selectors of every top level stylerule
+    public StylesheetShape selectorWidth(int selectorWidth) {
+        if (selectorWidth < 1) {
+            throw new IllegalArgumentException("A stylerule needs at least one selector");
+        }
+        this.selectorWidth = selectorWidth;
+        return this;
+    }
+
+    public int getGlobalVariables() {
+        return globalVariables;
+    }
+
+    public int getScopedVariables() {
+        return scopedVariables;
+    }
+
+    public int getRules() {
+        return rules;
+    }
+
+    public int getIfDepth() {
+        return ifDepth;
+    }
+
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    public int getExpressionLength() {
+        return expressionLength;
+    }
+
+    public int getSelectorWidth() {
+        return selectorWidth;
+    }
+
+    private static int requireNotNegative(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value should not be negative: " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "StylesheetShape{" +
+                "globalVariables=" + globalVariables +
+                ", scopedVariables=" + scopedVariables +
+                ", rules=" + rules +
+                ", ifDepth=" + ifDepth +
+                ", nestingDepth=" + nestingDepth +
+                ", expressionLength=" + expressionLength +
+                ", selectorWidth=" + selectorWidth +
+                '}';
+    }
+}
@@ -4,111 +4,207 @@ import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.operations.*;
 
+import nl.han.ica.icss.checker.Resolver;
+
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Map;
 
+/**
+ * Replaces every expression by its value.
+ * Operations are compiled to bytecode and run by an ExpressionInterpreter, which only allocates the literal
+ * for the result. The tree walking evaluation is kept for debugging, where stepping through it is easier.
+ */
 public class EvalExpressions implements Transform {
 
-    private LinkedList<HashMap<String, Literal>> variableValues;
+    // The values of all variables, indexed by the scope depth and slot the Resolver bound them to
+    private Literal[][] variableValues;
+
+    private final Evaluation evaluation = new Evaluation();
+    private final ASTRewriter rewriter = new ASTRewriter();
+    private final OperationValue operationValue = new OperationValue();
+    private final LiteralValue literalValue = new LiteralValue();
+
+    private final boolean bytecode;
+    private final ExpressionCompiler compiler = new ExpressionCompiler();
+    private final ExpressionInterpreter interpreter = new ExpressionInterpreter();
 
     public EvalExpressions() {
-        variableValues = new LinkedList<>();
+        this(true);
+    }
+
+    /**
+     * @param bytecode evaluate operations as bytecode, or walk their trees
+     */
+    public EvalExpressions(boolean bytecode) {
+        this.bytecode = bytecode;
     }
 
     @Override
     public void apply(AST ast) {
-        variableValues = new LinkedList<>();
-        // Add global scope
-        variableValues.add(new HashMap<String,Literal>());
-        evalExpressions(ast.root, null);
+        // Resolved on every application, the AST may have changed since it was checked
+        new Resolver().resolve(ast);
+        prepare(ast);
+        evalExpressions(ast.root);
+    }
+
+    // Empty frames for a resolved AST, after which its expressions can be evaluated one by one
+    // with assign and valueOf, in document order
+    void prepare(AST ast) {
+        createFrames(ast.frameSizes);
     }
 
-    private void evalExpressions(ASTNode node, ASTNode parent) {
-        // Base case
-        ArrayList<ASTNode> nodeChildren = node.getChildren();
-		if (nodeChildren.size() == 0) {
-			return;
+    // Evaluates an AST holding a part of a stylesheet, after the global variables assigned before that part.
+    // Global variables assigned by the part are added to globalValues.
+    void apply(AST ast, HashMap<String, Literal> globalValues) {
+        Resolver resolver = new Resolver(globalValues.keySet());
+        resolver.resolve(ast);
+        createFrames(ast.frameSizes);
+        HashMap<String, Integer> globalSlots = resolver.getGlobalSlots();
+        for (Map.Entry<String, Integer> global : globalSlots.entrySet()) {
+            variableValues[0][global.getValue()] = globalValues.get(global.getKey());
         }
 
-        // Recursion
-		for (ASTNode childNode : nodeChildren) {
-            enterEvaluation(childNode, node);
+        evalExpressions(ast.root);
+
+        for (Map.Entry<String, Integer> global : globalSlots.entrySet()) {
+            globalValues.put(global.getKey(), variableValues[0][global.getValue()]);
+        }
+    }
 
-            evalExpressions(childNode, node);
+    private void createFrames(int[] frameSizes) {
+        variableValues = new Literal[frameSizes.length][];
+        for (int depth = 0; depth < frameSizes.length; depth++) {
+            variableValues[depth] = new Literal[frameSizes[depth]];
+        }
+    }
 
-            exitEvaluation(childNode, node);
-		}
+    private void evalExpressions(ASTNode node) {
+        rewriter.rewrite(node, evaluation);
     }
 
-    private void enterEvaluation(ASTNode node, ASTNode parent) {
-        if (node instanceof Expression) {
-            Expression expression = (Expression) node;
-            evalExpression(expression, parent);
+    // Returns the value of an expression, which replaces it in its parent.
+    // Other nodes are kept, and their children are evaluated.
+    private class Evaluation implements ASTVisitor<ASTNode, ASTRewriter> {
+
+        @Override
+        public ASTNode visitNode(ASTNode node, ASTRewriter rewriter) {
+            return node;
         }
 
-        if (node instanceof Stylerule || node instanceof IfClause) {
-            // Add local scope
-            variableValues.add(new HashMap<String,Literal>());
+        // Literals are values already
+        @Override
+        public ASTNode visitExpression(Expression expression, ASTRewriter rewriter) {
+            rewriter.skipChildren();
+            return expression;
         }
 
-        // Add new variable assignment to current scope
-        if (node instanceof VariableAssignment) {
-            VariableAssignment variableAssignment = (VariableAssignment) node;
-            variableValues.getLast().put(variableAssignment.name.name, getLiteralFromExpression(variableAssignment.expression));
+        @Override
+        public ASTNode visitVariableReference(VariableReference variableReference, ASTRewriter rewriter) {
+            return valueOf(variableReference);
+        }
+
+        @Override
+        public ASTNode visitOperation(Operation operation, ASTRewriter rewriter) {
+            return valueOf(operation);
         }
-    }
 
-    private void exitEvaluation(ASTNode node, ASTNode parent) {
-        if (node instanceof Stylerule || node instanceof IfClause) {
-            // Remove local scope
-            variableValues.removeLast();
+        // The assignment itself is kept as it is
+        @Override
+        public ASTNode visitVariableAssignment(VariableAssignment variableAssignment, ASTRewriter rewriter) {
+            assign(variableAssignment);
+            rewriter.skipChildren();
+            return variableAssignment;
         }
     }
 
-    private void evalExpression(Expression expression, ASTNode parent) {
+    // The values of the global variables, which assign stores in this array
+    Literal[] getGlobals() {
+        return variableValues[0];
+    }
+
+    // Evaluates with other values for the global variables. Only expressions within rules may be evaluated,
+    // as they never assign globals, so the array can be shared with other evaluators.
+    void setGlobals(Literal[] globals) {
+        variableValues[0] = globals;
+    }
+
+    // Stores the value of the variable in its slot
+    void assign(VariableAssignment variableAssignment) {
+        VariableReference name = variableAssignment.name;
+        variableValues[name.scopeDepth][name.slot] = getLiteralFromExpression(variableAssignment.expression);
+    }
+
+    // The value of an expression. An undefined variable has no value and is kept.
+    Expression valueOf(Expression expression) {
         if (expression instanceof VariableReference) {
-            VariableReference variableRefrence = (VariableReference) expression;
-            replaceVariableWithLiteral(variableRefrence, parent);
+            Literal literal = getVariableLiteral((VariableReference) expression);
+            return literal != null ? literal : expression;
         }
-
         if (expression instanceof Operation) {
-            Operation operation = (Operation) expression;
-            replaceOperationWithLiteral(operation, parent);
+            return getLiteralFromExpression(expression);
         }
+        return expression;
     }
 
-    private void replaceVariableWithLiteral(VariableReference variableReference, ASTNode parent) {
-        Literal literal = getVariableLiteral(variableReference.name);
-        parent.removeChild(variableReference);
-        parent.addChild(literal);
+    private Literal getLiteralFromExpression(Expression expression) {
+        if (bytecode && expression instanceof Operation) {
+            compiler.compile(expression);
+            interpreter.run(compiler.code(), compiler.length(), variableValues);
+            return interpreter.toLiteral();
+        }
+        return walkExpression(expression);
     }
 
-    private void replaceOperationWithLiteral(Operation operation, ASTNode parent) {
-        Literal literal = getLiteralFromOperation(operation);
-        parent.removeChild(operation);
-        parent.addChild(literal);
+    // Evaluates bottom-up: every operand is exited before the operation using it, so its value is on the stack
+    private Literal walkExpression(Expression expression) {
+        ArrayList<Literal> values = new ArrayList<>();
+        ASTWalker walker = new ASTWalker(expression);
+        while (walker.next()) {
+            if (!walker.isEnter()) {
+                values.add(walker.node().accept(operationValue, values));
+            }
+        }
+        return values.get(0);
     }
 
-    private Literal getLiteralFromExpression(Expression expression) {
-        if (expression instanceof Literal) {
-            return (Literal) expression;
+    // The value of an expression whose operands' values are on top of the value stack given as context.
+    // The operands are popped.
+    private class OperationValue implements ASTVisitor<Literal, ArrayList<Literal>> {
+
+        @Override
+        public Literal visitLiteral(Literal literal, ArrayList<Literal> values) {
+            return literal;
         }
 
-        if (expression instanceof Operation) {
-            Operation operation = (Operation) expression;
-            return getLiteralFromOperation(operation);
+        @Override
+        public Literal visitVariableReference(VariableReference variableReference, ArrayList<Literal> values) {
+            return getVariableLiteral(variableReference);
         }
 
-        VariableReference variableRefrence = (VariableReference) expression;
-        return getVariableLiteral(variableRefrence.name);
-    }
+        @Override
+        public Literal visitAddOperation(AddOperation operation, ArrayList<Literal> values) {
+            Literal rhsLiteral = values.remove(values.size() - 1);
+            Literal lhsLiteral = values.remove(values.size() - 1);
+            return createLiteral(lhsLiteral, rhsLiteral, getValueFromLiteral(lhsLiteral) + getValueFromLiteral(rhsLiteral));
+        }
 
-    private Literal getLiteralFromOperation(Operation operation) {
-        Literal lhsLiteral = getLiteralFromExpression(operation.lhs);
-        Literal rhsLiteral = getLiteralFromExpression(operation.rhs);
-        int operationValue = calculateOperation(operation, lhsLiteral, rhsLiteral);
+        @Override
+        public Literal visitSubtractOperation(SubtractOperation operation, ArrayList<Literal> values) {
+            Literal rhsLiteral = values.remove(values.size() - 1);
+            Literal lhsLiteral = values.remove(values.size() - 1);
+            return createLiteral(lhsLiteral, rhsLiteral, getValueFromLiteral(lhsLiteral) - getValueFromLiteral(rhsLiteral));
+        }
+
+        @Override
+        public Literal visitMultiplyOperation(MultiplyOperation operation, ArrayList<Literal> values) {
+            Literal rhsLiteral = values.remove(values.size() - 1);
+            Literal lhsLiteral = values.remove(values.size() - 1);
+            return createLiteral(lhsLiteral, rhsLiteral, getValueFromLiteral(lhsLiteral) * getValueFromLiteral(rhsLiteral));
+        }
+    }
 
+    private Literal createLiteral(Literal lhsLiteral, Literal rhsLiteral, int operationValue) {
         if (lhsLiteral instanceof PixelLiteral || rhsLiteral instanceof PixelLiteral) {
             return new PixelLiteral(operationValue);
         }
@@ -118,47 +214,41 @@ public class EvalExpressions implements Transform {
         return new ScalarLiteral(operationValue);
     }
 
-    private int calculateOperation(Operation operation, Literal lhsLiteral, Literal rhsLiteral) {
-        // Add
-        if (operation instanceof AddOperation) {
-            return getValueFromLiteral(lhsLiteral) + getValueFromLiteral(rhsLiteral);
+    private int getValueFromLiteral(Literal literal) {
+        // The literal of an undefined variable
+        if (literal == null) {
+            return 0;
         }
+        return literal.accept(literalValue, null);
+    }
 
-        // Subtract
-        if (operation instanceof SubtractOperation) {
-            return getValueFromLiteral(lhsLiteral) - getValueFromLiteral(rhsLiteral);
-        }
+    private static class LiteralValue implements ASTVisitor<Integer, Void> {
 
-        // Multiply
-        return getValueFromLiteral(lhsLiteral) * getValueFromLiteral(rhsLiteral);
-    }
+        @Override
+        public Integer visitNode(ASTNode node, Void context) {
+            return 0;
+        }
 
-    private int getValueFromLiteral(Literal literal) {
-        if (literal instanceof PixelLiteral) {
-            PixelLiteral pixelLiteral = (PixelLiteral) literal;
+        @Override
+        public Integer visitPixelLiteral(PixelLiteral pixelLiteral, Void context) {
             return pixelLiteral.value;
         }
-        if (literal instanceof PercentageLiteral) {
-            PercentageLiteral percentageLiteral = (PercentageLiteral) literal;
+
+        @Override
+        public Integer visitPercentageLiteral(PercentageLiteral percentageLiteral, Void context) {
             return percentageLiteral.value;
         }
-        if (literal instanceof ScalarLiteral) {
-            ScalarLiteral scalarLiteral = (ScalarLiteral) literal;
+
+        @Override
+        public Integer visitScalarLiteral(ScalarLiteral scalarLiteral, Void context) {
             return scalarLiteral.value;
         }
-        return 0;
     }
 
-    private Literal getVariableLiteral(String key) {
-        Literal literal = null;
-
-        // Go from back to front to get the scoped variables first.
-        loop:
-        for (int i = variableValues.size() - 1; i >= 0; i--) {
-            literal = variableValues.get(i).get(key);
-            if (literal != null) break loop;
+    private Literal getVariableLiteral(VariableReference variableReference) {
+        if (variableReference.scopeDepth < 0) {
+            return null;
         }
-
-        return literal;
+        return variableValues[variableReference.scopeDepth][variableReference.slot];
     }
 }
@@ -0,0 +1,167 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.*;
+
+/**
+ * Lowers an expression to bytecode for the ExpressionInterpreter: a stack machine whose program is an int array.
+ * Every instruction is an opcode followed by its operands:
+ *
+ * <pre>
+ * PUSH unit value    push a value with its unit
+ * LOAD depth slot    push the value of a variable, by the scope depth and slot the Resolver bound it to
+ * ADD                pop rhs and lhs, push lhs + rhs
+ * SUBTRACT           pop rhs and lhs, push lhs - rhs
+ * MULTIPLY           pop rhs and lhs, push lhs * rhs
+ * </pre>
+ *
+ * The result of an operation has the strongest unit of its operands: PIXEL over PERCENTAGE over SCALAR.
+ * Colors, booleans and undefined variables count as scalar 0, as in the tree walking evaluation.
+ *
+ * A compiled expression does not refer to the AST, so it can be evaluated any number of times against
+ * different variable values. The compiler reuses its buffer; use toArray to keep a program.
+ * A compiler is not thread-safe.
+ */
+public final class ExpressionCompiler {
+
+    public static final int PUSH = 0;
+    public static final int LOAD = 1;
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+
+    // Units, weakest first
+    public static final int SCALAR = 0;
+    public static final int PERCENTAGE = 1;
+    public static final int PIXEL = 2;
+
+    private static final Emitter EMITTER = new Emitter();
+
+    private final ASTWalker walker = new ASTWalker(null);
+    private int[] code = new int[32];
+    private int length = 0;
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    /**
+     * Compiles the expression, replacing the previously compiled one.
+     */
+    public ExpressionCompiler compile(Expression expression) {
+        length = 0;
+        depth = 0;
+        maxDepth = 0;
+        // Operands are exited before the operation using them, so this emits postfix code
+        walker.reset(expression);
+        while (walker.next()) {
+            if (!walker.isEnter()) {
+                walker.node().accept(EMITTER, this);
+            }
+        }
+        return this;
+    }
+
+    // The compiled program, valid until the next compile
+    int[] code() {
+        return code;
+    }
+
+    // The number of ints in the program
+    public int length() {
+        return length;
+    }
+
+    // The number of values on the stack at the deepest point of the program
+    public int maxStackDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return a copy of the compiled program
+     */
+    public int[] toArray() {
+        int[] program = new int[length];
+        System.arraycopy(code, 0, program, 0, length);
+        return program;
+    }
+
+    private void emit(int opcode, int first, int second) {
+        ensureCapacity(3);
+        code[length++] = opcode;
+        code[length++] = first;
+        code[length++] = second;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void emit(int opcode) {
+        ensureCapacity(1);
+        code[length++] = opcode;
+        depth--;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > code.length) {
+            int[] grown = new int[Math.max(code.length * 2, length + extra)];
+            System.arraycopy(code, 0, grown, 0, length);
+            code = grown;
+        }
+    }
+
+    // Emits the code of a node whose operands have been emitted already
+    private static class Emitter implements ASTVisitor<Void, ExpressionCompiler> {
+
+        // Colors and booleans
+        @Override
+        public Void visitNode(ASTNode node, ExpressionCompiler compiler) {
+            compiler.emit(PUSH, SCALAR, 0);
+            return null;
+        }
+
+        @Override
+        public Void visitPixelLiteral(PixelLiteral literal, ExpressionCompiler compiler) {
+            compiler.emit(PUSH, PIXEL, literal.value);
+            return null;
+        }
+
+        @Override
+        public Void visitPercentageLiteral(PercentageLiteral literal, ExpressionCompiler compiler) {
+            compiler.emit(PUSH, PERCENTAGE, literal.value);
+            return null;
+        }
+
+        @Override
+        public Void visitScalarLiteral(ScalarLiteral literal, ExpressionCompiler compiler) {
+            compiler.emit(PUSH, SCALAR, literal.value);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReference reference, ExpressionCompiler compiler) {
+            if (reference.scopeDepth < 0) {
+                compiler.emit(PUSH, SCALAR, 0);
+            } else {
+                compiler.emit(LOAD, reference.scopeDepth, reference.slot);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitAddOperation(AddOperation operation, ExpressionCompiler compiler) {
+            compiler.emit(ADD);
+            return null;
+        }
+
+        @Override
+        public Void visitSubtractOperation(SubtractOperation operation, ExpressionCompiler compiler) {
+            compiler.emit(SUBTRACT);
+            return null;
+        }
+
+        @Override
+        public Void visitMultiplyOperation(MultiplyOperation operation, ExpressionCompiler compiler) {
+            compiler.emit(MULTIPLY);
+            return null;
+        }
+    }
+}
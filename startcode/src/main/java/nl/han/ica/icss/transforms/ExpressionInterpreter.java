@@ -0,0 +1,129 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+
+import static nl.han.ica.icss.transforms.ExpressionCompiler.*;
+
+/**
+ * Runs programs compiled by the ExpressionCompiler. Values and units are kept on two int stacks that are reused
+ * from run to run, so evaluating allocates nothing; only toLiteral creates the literal for the result.
+ * An interpreter is not thread-safe.
+ */
+public final class ExpressionInterpreter {
+
+    private final Loader loader = new Loader();
+    private int[] values = new int[16];
+    private int[] units = new int[16];
+    private int top = 0;
+
+    /**
+     * Runs a program against the values of the variables, indexed by scope depth and slot.
+     */
+    public void run(int[] code, Literal[][] variables) {
+        run(code, code.length, variables);
+    }
+
+    public void run(int[] code, int length, Literal[][] variables) {
+        top = 0;
+        int pc = 0;
+        while (pc < length) {
+            switch (code[pc]) {
+                case PUSH:
+                    push(code[pc + 1], code[pc + 2]);
+                    pc += 3;
+                    break;
+                case LOAD:
+                    Literal literal = variables[code[pc + 1]][code[pc + 2]];
+                    if (literal == null) {
+                        push(SCALAR, 0);
+                    } else {
+                        literal.accept(loader, null);
+                    }
+                    pc += 3;
+                    break;
+                case ADD:
+                    top--;
+                    values[top - 1] += values[top];
+                    units[top - 1] = Math.max(units[top - 1], units[top]);
+                    pc++;
+                    break;
+                case SUBTRACT:
+                    top--;
+                    values[top - 1] -= values[top];
+                    units[top - 1] = Math.max(units[top - 1], units[top]);
+                    pc++;
+                    break;
+                case MULTIPLY:
+                    top--;
+                    values[top - 1] *= values[top];
+                    units[top - 1] = Math.max(units[top - 1], units[top]);
+                    pc++;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    // The value of the last run
+    public int value() {
+        return values[0];
+    }
+
+    // The unit of the last run's value
+    public int unit() {
+        return units[0];
+    }
+
+    public Literal toLiteral() {
+        switch (units[0]) {
+            case PIXEL: return new PixelLiteral(values[0]);
+            case PERCENTAGE: return new PercentageLiteral(values[0]);
+            default: return new ScalarLiteral(values[0]);
+        }
+    }
+
+    private void push(int unit, int value) {
+        if (top == values.length) {
+            int[] grownValues = new int[top * 2];
+            int[] grownUnits = new int[top * 2];
+            System.arraycopy(values, 0, grownValues, 0, top);
+            System.arraycopy(units, 0, grownUnits, 0, top);
+            values = grownValues;
+            units = grownUnits;
+        }
+        values[top] = value;
+        units[top] = unit;
+        top++;
+    }
+
+    // Pushes the value of a variable
+    private class Loader implements ASTVisitor<Void, Void> {
+
+        // Colors and booleans
+        @Override
+        public Void visitNode(ASTNode node, Void context) {
+            push(SCALAR, 0);
+            return null;
+        }
+
+        @Override
+        public Void visitPixelLiteral(PixelLiteral literal, Void context) {
+            push(PIXEL, literal.value);
+            return null;
+        }
+
+        @Override
+        public Void visitPercentageLiteral(PercentageLiteral literal, Void context) {
+            push(PERCENTAGE, literal.value);
+            return null;
+        }
+
+        @Override
+        public Void visitScalarLiteral(ScalarLiteral literal, Void context) {
+            push(SCALAR, literal.value);
+            return null;
+        }
+    }
+}
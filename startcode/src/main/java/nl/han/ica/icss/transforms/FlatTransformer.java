@@ -0,0 +1,60 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Stylesheet;
+import nl.han.ica.icss.ast.flat.FlatAST;
+
+/**
+ * Applies EvalExpressions, RemoveIf and ReplaceNestedStylerule to a FlatAST, one top-level element at a time,
+ * so only a single element is held as objects. The result is a new FlatAST equal to transforming the whole AST:
+ * the values of global variables are carried from element to element, and the nested stylerules moved out of
+ * the elements are added after all elements, in document order.
+ */
+public class FlatTransformer {
+
+    private final RemoveIf removeIf = new RemoveIf();
+    private final ReplaceNestedStylerule replaceNestedStylerule = new ReplaceNestedStylerule();
+
+    public FlatAST apply(FlatAST ast) {
+        FlatAST result = new FlatAST(ast.size());
+        if (ast.root() == FlatAST.NONE) {
+            return result;
+        }
+        int root = result.add(FlatAST.STYLESHEET, 0);
+        result.setRoot(root);
+
+        // The moved stylerules, kept flat until all elements are done
+        FlatAST moved = new FlatAST();
+        int movedRoot = moved.add(FlatAST.STYLESHEET, 0);
+
+        EvalExpressions evalExpressions = new EvalExpressions();
+        HashMap<String, Literal> globalValues = new HashMap<>();
+        for (int element = ast.firstChild(ast.root()); element != FlatAST.NONE; element = ast.nextSibling(element)) {
+            // Each element gets a stylesheet of its own, so the transforms see it as top-level
+            Stylesheet stylesheet = new Stylesheet();
+            stylesheet.addChild(ast.toNode(element));
+            AST single = new AST(stylesheet);
+
+            evalExpressions.apply(single, globalValues);
+            removeIf.apply(single);
+            replaceNestedStylerule.apply(single);
+
+            ArrayList<ASTNode> body = stylesheet.body;
+            result.appendChild(root, result.addTree(body.get(0)));
+            for (int i = 1; i < body.size(); i++) {
+                moved.appendChild(movedRoot, moved.addTree(body.get(i)));
+            }
+        }
+
+        for (int rule = moved.firstChild(movedRoot); rule != FlatAST.NONE; rule = moved.nextSibling(rule)) {
+            result.appendChild(root, result.addTree(moved.toNode(rule)));
+        }
+        result.trimToSize();
+        return result;
+    }
+}
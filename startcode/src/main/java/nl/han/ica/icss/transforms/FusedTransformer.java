@@ -0,0 +1,170 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.checker.Resolver;
+
+/**
+ * Does what EvalExpressions, RemoveIf and ReplaceNestedStylerule do one after the other, in a single pass over the
+ * bodies of the stylesheet and its rules. Body elements are handled in document order: assignments store their value,
+ * declarations get the value of their expression, true if clauses are replaced by their bodies and nested rules
+ * are moved to the end of the stylesheet. Only bodies with if clauses or nested rules are rebuilt, and only once.
+ *
+ * The features the parser found in the stylesheet decide what is done at all. Without variables and operations
+ * nothing is resolved or evaluated, and a stylesheet using none of the features is left alone right away.
+ * The result equals running the three transforms, which stay available on their own for debugging.
+ */
+public class FusedTransformer implements Transform {
+
+    @Override
+    public void apply(AST ast) {
+        if (ast.features == 0) {
+            return;
+        }
+        ArrayList<ASTNode> moved = new ArrayList<>();
+        RulePass pass = new RulePass(evaluator(ast));
+        for (ASTNode element : ast.root.body) {
+            if (element instanceof VariableAssignment) {
+                pass.assign((VariableAssignment) element);
+            } else if (element instanceof Stylerule) {
+                pass.transformRule((Stylerule) element, moved);
+            }
+        }
+        ast.root.body.addAll(moved);
+    }
+
+    // An evaluator for the AST, which is resolved first, or null when it has no expressions to evaluate
+    static EvalExpressions evaluator(AST ast) {
+        if (!ast.uses(AST.VARIABLES | AST.OPERATIONS)) {
+            return null;
+        }
+        new Resolver().resolve(ast);
+        return evaluatorForResolved(ast);
+    }
+
+    // An evaluator for an AST that has just been resolved
+    static EvalExpressions evaluatorForResolved(AST ast) {
+        EvalExpressions evalExpressions = new EvalExpressions();
+        evalExpressions.prepare(ast);
+        return evalExpressions;
+    }
+
+    // A rule whose body is being transformed
+    private static class Frame {
+        final Stylerule rule;
+        // The rule's body and the bodies of the true if clauses in it that are being copied, the innermost on top
+        final ArrayDeque<Iterator<ASTNode>> bodies = new ArrayDeque<>();
+        // Null as long as the body can be kept as it is, which is until the first if clause or nested rule
+        ArrayList<ASTNode> newBody;
+        int kept = 0;
+
+        Frame(Stylerule rule) {
+            this.rule = rule;
+            bodies.push(rule.body.iterator());
+        }
+
+        void keep(ASTNode node) {
+            if (newBody != null) {
+                newBody.add(node);
+            } else {
+                kept++;
+            }
+        }
+
+        // Everything kept so far came straight from the rule's body
+        void rebuild() {
+            if (newBody == null) {
+                newBody = new ArrayList<>(rule.body.size());
+                newBody.addAll(rule.body.subList(0, kept));
+            }
+        }
+    }
+
+    // Transforms top-level rules one by one, in document order.
+    // Visiting a body element handles it for the frame given as context.
+    static class RulePass implements ASTVisitor<Void, Frame> {
+
+        private final EvalExpressions evalExpressions;
+        private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        // Where the nested rules of the current top-level rule go, in the order ReplaceNestedStylerule adds them
+        private ArrayList<ASTNode> moved;
+
+        RulePass(EvalExpressions evalExpressions) {
+            this.evalExpressions = evalExpressions;
+        }
+
+        void assign(VariableAssignment variableAssignment) {
+            if (evalExpressions != null) {
+                evalExpressions.assign(variableAssignment);
+            }
+        }
+
+        void transformRule(Stylerule rule, ArrayList<ASTNode> moved) {
+            this.moved = moved;
+            frames.push(new Frame(rule));
+            while (!frames.isEmpty()) {
+                Frame frame = frames.peek();
+                Iterator<ASTNode> body = frame.bodies.peek();
+                if (body == null) {
+                    if (frame.newBody != null) {
+                        frame.rule.body.clear();
+                        frame.rule.body.addAll(frame.newBody);
+                    }
+                    frames.pop();
+                } else if (!body.hasNext()) {
+                    frame.bodies.pop();
+                } else {
+                    body.next().accept(this, frame);
+                }
+            }
+        }
+
+        private Expression valueOf(Expression expression) {
+            return evalExpressions != null ? evalExpressions.valueOf(expression) : expression;
+        }
+
+        @Override
+        public Void visitNode(ASTNode node, Frame frame) {
+            frame.keep(node);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(Declaration declaration, Frame frame) {
+            declaration.expression = valueOf(declaration.expression);
+            frame.keep(declaration);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment variableAssignment, Frame frame) {
+            assign(variableAssignment);
+            frame.keep(variableAssignment);
+            return null;
+        }
+
+        // The body of a true clause is copied next, in the clause's place
+        @Override
+        public Void visitIfClause(IfClause ifClause, Frame frame) {
+            frame.rebuild();
+            BoolLiteral condition = (BoolLiteral) valueOf(ifClause.conditionalExpression);
+            if (condition.value) {
+                frame.bodies.push(ifClause.body.iterator());
+            }
+            return null;
+        }
+
+        // The nested rule is done before the rest of its parent, as its parent's selectors are complete
+        @Override
+        public Void visitStylerule(Stylerule stylerule, Frame frame) {
+            frame.rebuild();
+            ReplaceNestedStylerule.replaceNestedStylerule(stylerule, frame.rule, moved);
+            frames.push(new Frame(stylerule));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Chunking;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.VariableAssignment;
+
+/**
+ * Does what the FusedTransformer does, with the top-level rules spread over the threads of a ForkJoinPool.
+ *
+ * Top-level rules only read global variables, so they are independent once the globals are known. The global
+ * assignments are evaluated first, in document order, and every rule gets the values of the globals at its place
+ * in the stylesheet. Rules between two assignments share one copy. The rules are then transformed in chunks as
+ * fork-join tasks, and the nested rules they move out are added to the stylesheet in document order, so the result
+ * equals that of the FusedTransformer.
+ *
+ * Stylesheets with too few rules to split are transformed on the calling thread.
+ */
+public class ParallelTransformer implements Transform {
+
+    private final Chunking chunking;
+    private final FusedTransformer fusedTransformer = new FusedTransformer();
+
+    public ParallelTransformer() {
+        this(new Chunking());
+    }
+
+    public ParallelTransformer(Chunking chunking) {
+        this.chunking = chunking;
+    }
+
+    @Override
+    public void apply(AST ast) {
+        ArrayList<ASTNode> body = ast.root.body;
+        int chunk = chunking.chunkSize(body.size());
+        if (ast.features == 0 || body.size() <= chunk) {
+            fusedTransformer.apply(ast);
+            return;
+        }
+
+        Literal[][] globals = evaluateGlobals(ast);
+        ArrayList<ArrayList<ASTNode>> moved = new ArrayList<>(body.size());
+        for (int i = 0; i < body.size(); i++) {
+            moved.add(null);
+        }
+        chunking.getPool().invoke(new Rules(ast, globals, moved, 0, body.size(), chunk));
+
+        for (ArrayList<ASTNode> rules : moved) {
+            if (rules != null) {
+                body.addAll(rules);
+            }
+        }
+    }
+
+    // The values of the globals every top-level element sees, null without expressions to evaluate
+    private static Literal[][] evaluateGlobals(AST ast) {
+        EvalExpressions evalExpressions = FusedTransformer.evaluator(ast);
+        if (evalExpressions == null) {
+            return null;
+        }
+        ArrayList<ASTNode> body = ast.root.body;
+        Literal[][] globals = new Literal[body.size()][];
+        Literal[] current = evalExpressions.getGlobals().clone();
+        boolean changed = false;
+        for (int i = 0; i < body.size(); i++) {
+            ASTNode element = body.get(i);
+            if (element instanceof VariableAssignment) {
+                evalExpressions.assign((VariableAssignment) element);
+                changed = true;
+            } else {
+                if (changed) {
+                    current = evalExpressions.getGlobals().clone();
+                    changed = false;
+                }
+                globals[i] = current;
+            }
+        }
+        return globals;
+    }
+
+    // Transforms the top-level rules from start up to end
+    private static class Rules extends RecursiveAction {
+
+        private final AST ast;
+        private final Literal[][] globals;
+        private final ArrayList<ArrayList<ASTNode>> moved;
+        private final int start;
+        private final int end;
+        private final int chunk;
+
+        Rules(AST ast, Literal[][] globals, ArrayList<ArrayList<ASTNode>> moved, int start, int end, int chunk) {
+            this.ast = ast;
+            this.globals = globals;
+            this.moved = moved;
+            this.start = start;
+            this.end = end;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > chunk) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Rules(ast, globals, moved, start, middle, chunk),
+                        new Rules(ast, globals, moved, middle, end, chunk));
+                return;
+            }
+
+            // Every task evaluates with its own frames, only the globals are shared
+            EvalExpressions evalExpressions = globals != null ? FusedTransformer.evaluatorForResolved(ast) : null;
+            FusedTransformer.RulePass pass = new FusedTransformer.RulePass(evalExpressions);
+            ArrayList<ASTNode> body = ast.root.body;
+            ArrayList<ASTNode> rules = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                ASTNode element = body.get(i);
+                if (!(element instanceof Stylerule)) {
+                    continue;
+                }
+                if (evalExpressions != null) {
+                    evalExpressions.setGlobals(globals[i]);
+                }
+                pass.transformRule((Stylerule) element, rules);
+                if (!rules.isEmpty()) {
+                    moved.set(i, new ArrayList<>(rules));
+                    rules.clear();
+                }
+            }
+        }
+    }
+}
@@ -1,67 +1,85 @@
 package nl.han.ica.icss.transforms;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
 
 public class RemoveIf implements Transform {
 
+    private static final Body BODY = new Body();
+
     @Override
     public void apply(AST ast) {
         removeIf(ast.root);
     }
 
     public void removeIf(ASTNode node) {
-        if (node instanceof IfClause) {
-            IfClause ifClause = (IfClause) node;
-            ArrayList<ASTNode> body = ifClause.body;
-            checkBodyForIfStatements(body, node);
+        ASTWalker walker = new ASTWalker(node);
+        while (walker.next()) {
+            if (!walker.isEnter()) {
+                continue;
+            }
+            // The walker reads the children after this, so it visits the body without if clauses
+            ArrayList<ASTNode> body = walker.node().accept(BODY, null);
+            if (body != null) {
+                checkBodyForIfStatements(body);
+            }
         }
+    }
 
-        if (node instanceof Stylerule) {
-            Stylerule stylerule = (Stylerule) node;
-            ArrayList<ASTNode> body = stylerule.body;
-            checkBodyForIfStatements(body, node);
-        }
+    // The body of the nodes that can contain if clauses, null for other nodes
+    private static class Body implements ASTVisitor<ArrayList<ASTNode>, Void> {
 
-        // Base case
-        ArrayList<ASTNode> nodeChildren = node.getChildren();
-		if (nodeChildren.size() == 0) {
-			return;
+        @Override
+        public ArrayList<ASTNode> visitStylerule(Stylerule stylerule, Void context) {
+            return stylerule.body;
         }
 
-        // Recursion
-		for (ASTNode childNode : nodeChildren) {
-			removeIf(childNode);
-		}
+        @Override
+        public ArrayList<ASTNode> visitIfClause(IfClause ifClause, Void context) {
+            return ifClause.body;
+        }
     }
 
-    private void checkBodyForIfStatements(ArrayList<ASTNode> body, ASTNode previous) {
-        ArrayList<ASTNode> addList = new ArrayList<ASTNode>();
-        ArrayList<ASTNode> removeList = new ArrayList<ASTNode>();
+    // Replaces every if clause in the body by the body of the clause when it is true, and by nothing when it is false.
+    // The body is rebuilt once, so each node is copied once however many clauses there are, and keeps its place.
+    private void checkBodyForIfStatements(ArrayList<ASTNode> body) {
+        boolean hasIfClauses = false;
         for (ASTNode bodyNode : body) {
+            if (bodyNode instanceof IfClause) {
+                hasIfClauses = true;
+                break;
+            }
+        }
+        if (!hasIfClauses) {
+            return;
+        }
+
+        ArrayList<ASTNode> newBody = new ArrayList<ASTNode>(body.size());
+        // The bodies being copied, the innermost true clause on top
+        ArrayDeque<Iterator<ASTNode>> bodies = new ArrayDeque<Iterator<ASTNode>>();
+        bodies.push(body.iterator());
+        while (!bodies.isEmpty()) {
+            Iterator<ASTNode> bodyNodes = bodies.peek();
+            if (!bodyNodes.hasNext()) {
+                bodies.pop();
+                continue;
+            }
+            ASTNode bodyNode = bodyNodes.next();
             if (bodyNode instanceof IfClause) {
                 IfClause ifClause = (IfClause) bodyNode;
                 BoolLiteral condition = (BoolLiteral) ifClause.conditionalExpression;
-                if (condition.value == true) {
-                    // Call recursion on the new if statement.
-                    removeIf(bodyNode);
-                    // Add the body to a temporary list so it can be copied over later to avoid ConcurrentModificationException11
-                    addList.addAll(ifClause.body);
-                    // Add ifClause to an array that deletes them later to avoid ConcurrentModificationException
-                    removeList.add(bodyNode);
-                } else {
-                    // Add ifClause to an array that deletes them later to avoid ConcurrentModificationException
-                    removeList.add(bodyNode);
+                if (condition.value) {
+                    bodies.push(ifClause.body.iterator());
                 }
+            } else {
+                newBody.add(bodyNode);
             }
         }
-        for (ASTNode bodyNode : addList) {
-            previous.addChild(bodyNode);
-        }
-        for (ASTNode ifClause : removeList) {
-            body.remove(ifClause);
-        }
+        body.clear();
+        body.addAll(newBody);
     }
 }
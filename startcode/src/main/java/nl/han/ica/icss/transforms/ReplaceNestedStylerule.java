@@ -4,54 +4,53 @@ import java.util.ArrayList;
 
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTWalker;
 import nl.han.ica.icss.ast.Selector;
 import nl.han.ica.icss.ast.Stylerule;
 import nl.han.ica.icss.ast.Stylesheet;
 
+/**
+ * Moves nested stylerules to the stylesheet.
+ */
 public class ReplaceNestedStylerule implements Transform {
-    ArrayList<ASTNode> addList = new ArrayList<ASTNode>();
-    ArrayList<ASTNode> removeList = new ArrayList<ASTNode>();
 
     @Override
     public void apply(AST ast) {
-        iterateOverStylesheet(ast.root);
-        if (addList.size() > 0) {
-            processAddList(ast.root);
-            iterateOverStylesheet(ast.root);
-        }
-    }
+        ArrayList<ASTNode> addList = new ArrayList<ASTNode>();
 
-    private void iterateOverStylesheet(Stylesheet stylesheet) {
-        for (ASTNode bodyNode : stylesheet.body) {
-            if (bodyNode instanceof Stylerule) {
-                replaceNestedStylerules((Stylerule) bodyNode, stylesheet);
+        ASTWalker walker = new ASTWalker(ast.root);
+        while (walker.next()) {
+            ASTNode node = walker.node();
+            if (!(node instanceof Stylerule || node instanceof Stylesheet)) {
+                walker.skipChildren();
+                continue;
             }
-        }
-    }
-
-    public void replaceNestedStylerules(Stylerule stylerule, ASTNode parent) {
-        for (ASTNode bodyNode : stylerule.body) {
-            if (bodyNode instanceof Stylerule) {
-                replaceNestedStylerule((Stylerule) bodyNode, stylerule, parent);
-                replaceNestedStylerules((Stylerule) bodyNode, stylerule);
+            if (!(node instanceof Stylerule)) {
+                continue;
+            }
+            Stylerule stylerule = (Stylerule) node;
+            if (walker.isEnter()) {
+                // Parents are entered first, so their parent selectors are complete by now
+                if (walker.parent() instanceof Stylerule) {
+                    replaceNestedStylerule(stylerule, (Stylerule) walker.parent(), addList);
+                }
+            } else {
+                // The walker took the children when it entered the rule, so they can be removed once it is done with them
+                stylerule.body.removeIf(bodyNode -> bodyNode instanceof Stylerule);
             }
         }
-        processRemoveList(stylerule);
+        processAddList(ast.root, addList);
     }
 
-    private void processAddList(ASTNode target) {
+    private void processAddList(ASTNode target, ArrayList<ASTNode> addList) {
         for (ASTNode node : addList) {
             target.addChild(node);
         }
     }
 
-    private void processRemoveList(ASTNode target) {
-        for (ASTNode node : removeList) {
-            target.removeChild(node);
-        }
-    }
-
-    private void replaceNestedStylerule(Stylerule stylerule, Stylerule parent, ASTNode grandParent) {
+    // Gives the rule the selectors of its parent as parent selectors, and adds it to the add list.
+    // A rule nested in a rule with more than one selector is left out.
+    static void replaceNestedStylerule(Stylerule stylerule, Stylerule parent, ArrayList<ASTNode> addList) {
         ArrayList<Selector> selectorsOfParent = parent.selectors;
         ArrayList<Selector> parentSelectorsOfParent = parent.parentSelectors;
         if (selectorsOfParent.size() == 1) {
@@ -63,6 +62,5 @@ public class ReplaceNestedStylerule implements Transform {
             stylerule.addParentSelector(selectorsOfParent.get(0));
             addList.add(stylerule);
         }
-        removeList.add(stylerule);
     }
 }
@@ -0,0 +1,101 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileCacheTest {
+
+	private static final String SOURCE = new StylesheetGenerator(5).generate(new StylesheetShape().rules(20).nestingDepth(2));
+
+	@Test
+	void testRepeatedCompileIsAHit() {
+		CompileCache cache = new CompileCache();
+		CompileResult first = cache.compile(SOURCE);
+		CompileResult second = cache.compile(new StringBuilder(SOURCE));
+
+		assertTrue(first.isSuccess(), first.getErrors().toString());
+		assertEquals(new ICSSCompiler().compile(SOURCE).getCss(), first.getCss());
+		assertSame(first, second);
+		assertEquals(1, cache.stats().missCount());
+		assertEquals(1, cache.stats().hitCount());
+	}
+
+	@Test
+	void testOptionsAreKeyedSeparately() {
+		CompileCache cache = new CompileCache();
+		CompileResult transformed = cache.compile(SOURCE, CompileOptions.DEFAULT);
+		CompileResult untransformed = cache.compile(SOURCE, CompileOptions.DEFAULT.withTransform(false));
+
+		assertNotEquals(transformed.getCss(), untransformed.getCss());
+		assertEquals(2, cache.stats().missCount());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testParallelAndCompactShareAnEntry() {
+		CompileCache cache = new CompileCache();
+		CompileResult plain = cache.compile(SOURCE, CompileOptions.DEFAULT);
+
+		assertSame(plain, cache.compile(SOURCE, CompileOptions.DEFAULT.withParallel(true)));
+		assertSame(plain, cache.compile(SOURCE, CompileOptions.DEFAULT.withCompactAst(true)));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testErrorsAreCached() {
+		CompileCache cache = new CompileCache();
+		CompileResult first = cache.compile("p { width: Undefined; }");
+		CompileResult second = cache.compile("p { width: Undefined; }");
+
+		assertEquals(1, first.getErrors().size(), first.getErrors().toString());
+		assertSame(first, second);
+		assertEquals(1, cache.stats().hitCount());
+	}
+
+	@Test
+	void testKeptAstIsNotCached() {
+		CompileCache cache = new CompileCache();
+		CompileOptions options = CompileOptions.DEFAULT.withKeepAst(true);
+		CompileResult first = cache.compile(SOURCE, options);
+		CompileResult second = cache.compile(SOURCE, options);
+
+		assertNotSame(first.getAst(), second.getAst());
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.stats().requestCount());
+	}
+
+	@Test
+	void testCacheIsBoundedByWeight() {
+		int weight = new ICSSCompiler().compile(SOURCE).getCss().length();
+		CompileCache cache = new CompileCache(new ICSSCompiler(), 4L * weight);
+
+		for (int seed = 0; seed < 20; seed++) {
+			cache.compile(new StylesheetGenerator(seed).generate(new StylesheetShape().rules(20).nestingDepth(2)));
+		}
+
+		assertTrue(cache.stats().evictionCount() > 0);
+		assertTrue(cache.size() < 20);
+	}
+
+	@Test
+	void testFileIsCachedByContent(@TempDir Path directory) throws Exception {
+		CompileCache cache = new CompileCache();
+		Path file = directory.resolve("style.icss");
+		Files.write(file, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+		CompileResult first = cache.compile(file, CompileOptions.DEFAULT);
+		assertSame(first, cache.compile(file, CompileOptions.DEFAULT));
+		assertEquals(cache.compile(SOURCE).getCss(), first.getCss());
+
+		Files.write(file, "p { width: 10px; }".getBytes(StandardCharsets.UTF_8));
+		assertEquals("p {\n\twidth: 10px;\n}\n\n", cache.compile(file, CompileOptions.DEFAULT).getCss());
+	}
+}
@@ -0,0 +1,168 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ASTs are built directly, the parser itself is still recursive.
+ * Everything runs on a thread with a small stack, so a recursive pass would overflow long before depth 100k.
+ */
+class DeepNestingTest {
+
+	private static final int DEPTH = 100_000;
+
+	private static void runWithSmallStack(Runnable test) throws Throwable {
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread thread = new Thread(null, () -> {
+			try {
+				test.run();
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "deep-nesting", 256 * 1024);
+		thread.start();
+		thread.join();
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	private static String compile(AST ast) {
+		new Checker().check(ast);
+		assertEquals("[]", ast.getErrors().toString());
+		new EvalExpressions().apply(ast);
+		new RemoveIf().apply(ast);
+		new ReplaceNestedStylerule().apply(ast);
+		return new Generator().generate(ast);
+	}
+
+	private static VariableAssignment assignment(String name, Expression expression) {
+		VariableAssignment assignment = new VariableAssignment();
+		assignment.addChild(new VariableReference(name));
+		assignment.addChild(expression);
+		return assignment;
+	}
+
+	private static Declaration declaration(String property, Expression expression) {
+		Declaration declaration = new Declaration(property);
+		declaration.addChild(expression);
+		return declaration;
+	}
+
+	// p { width: Width; if[TRUE] { if[TRUE] { ... height: Width; } } }
+	private static AST nestedIfs(int depth) {
+		ASTNode innermost = new Stylerule();
+		ASTNode stylerule = innermost;
+		stylerule.addChild(new TagSelector("p"));
+		stylerule.addChild(declaration("width", new VariableReference("Width")));
+		for (int i = 0; i < depth; i++) {
+			IfClause ifClause = new IfClause();
+			ifClause.addChild(new BoolLiteral(true));
+			innermost.addChild(ifClause);
+			innermost = ifClause;
+		}
+		innermost.addChild(declaration("height", new VariableReference("Width")));
+
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(assignment("Width", new PixelLiteral(10)));
+		stylesheet.addChild(stylerule);
+		return new AST(stylesheet);
+	}
+
+	// 1px + 1px + ... + 1px, left or right associative
+	private static Expression chain(int operations, boolean leftDeep) {
+		Expression expression = new PixelLiteral(1);
+		for (int i = 0; i < operations; i++) {
+			Operation operation = new AddOperation();
+			operation.lhs = leftDeep ? expression : new PixelLiteral(1);
+			operation.rhs = leftDeep ? new PixelLiteral(1) : expression;
+			expression = operation;
+		}
+		return expression;
+	}
+
+	// Every other rule has two selectors, so the flattened rules keep a single parent selector
+	private static AST nestedStylerules(int depth) {
+		Stylerule outermost = null;
+		Stylerule innermost = null;
+		for (int i = 0; i < depth; i++) {
+			Stylerule stylerule = new Stylerule();
+			stylerule.addChild(new TagSelector("p" + i));
+			if (i % 2 == 0) {
+				stylerule.addChild(new ClassSelector(".c" + i));
+			}
+			stylerule.addChild(declaration("width", new PixelLiteral(i)));
+			if (innermost == null) {
+				outermost = stylerule;
+			} else {
+				innermost.addChild(stylerule);
+			}
+			innermost = stylerule;
+		}
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(outermost);
+		return new AST(stylesheet);
+	}
+
+	private static AST ruleWithExpression(Expression expression) {
+		Stylerule stylerule = new Stylerule();
+		stylerule.addChild(new TagSelector("p"));
+		stylerule.addChild(declaration("width", expression));
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(stylerule);
+		return new AST(stylesheet);
+	}
+
+	@Test
+	void testDeeplyNestedIfClauses() throws Throwable {
+		runWithSmallStack(() -> assertEquals(compile(nestedIfs(1)), compile(nestedIfs(DEPTH))));
+	}
+
+	@Test
+	void testLongOperationChains() throws Throwable {
+		runWithSmallStack(() -> {
+			String expected = compile(ruleWithExpression(new PixelLiteral(DEPTH + 1)));
+			assertEquals(expected, compile(ruleWithExpression(chain(DEPTH, true))));
+			assertEquals(expected, compile(ruleWithExpression(chain(DEPTH, false))));
+		});
+	}
+
+	@Test
+	void testDeeplyNestedStylerules() throws Throwable {
+		runWithSmallStack(() -> {
+			AST ast = nestedStylerules(DEPTH);
+			String css = compile(ast);
+			assertEquals(DEPTH / 2, ast.root.body.size());
+			assertTrue(css.endsWith("p" + (DEPTH - 3) + " p" + (DEPTH - 2) + ", .c" + (DEPTH - 2) + " {\n\twidth: " + (DEPTH - 2) + "px;\n}\n\n"), css.substring(css.length() - 100));
+		});
+	}
+
+	@Test
+	void testObjectMethodsOnDeepTrees() throws Throwable {
+		runWithSmallStack(() -> {
+			IntFunction<AST> build = depth -> nestedIfs(depth);
+			AST first = build.apply(DEPTH);
+			AST second = build.apply(DEPTH);
+			assertEquals(first, second);
+			assertEquals(first.hashCode(), second.hashCode());
+			assertEquals(first.toString(), second.toString());
+			assertNotEquals(first, build.apply(DEPTH - 1));
+			assertTrue(first.getErrors().isEmpty());
+		});
+	}
+}
@@ -0,0 +1,109 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ICSSCompilerTest {
+
+	private static String compileWithPipeline(String source) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		pipeline.check();
+		pipeline.transform();
+		return pipeline.generate();
+	}
+
+	@Test
+	void testCompileMatchesPipeline() {
+		String source = new StylesheetGenerator(3).generate(new StylesheetShape().rules(20).nestingDepth(2));
+		CompileResult result = new ICSSCompiler().compile(source);
+
+		assertTrue(result.isSuccess(), result.getErrors().toString());
+		assertEquals(compileWithPipeline(source), result.getCss());
+		assertNull(result.getAst());
+	}
+
+	@Test
+	void testCompileReportsErrors() {
+		ICSSCompiler compiler = new ICSSCompiler();
+
+		CompileResult syntaxError = compiler.compile("p { width: 10px ");
+		assertFalse(syntaxError.isSuccess());
+		assertNull(syntaxError.getCss());
+
+		CompileResult semanticError = compiler.compile("p { width: Undefined; }");
+		assertFalse(semanticError.isSuccess());
+		assertNull(semanticError.getCss());
+	}
+
+	@Test
+	void testConcurrentCompilesDoNotInterfere() throws Exception {
+		ICSSCompiler compiler = new ICSSCompiler();
+		List<String> sources = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (int seed = 0; seed < 16; seed++) {
+			String source = new StylesheetGenerator(seed).generate(new StylesheetShape().rules(10).nestingDepth(2));
+			sources.add(source);
+			expected.add(compileWithPipeline(source));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<CompileResult>> futures = new ArrayList<>();
+			for (int round = 0; round < 4; round++) {
+				for (String source : sources) {
+					futures.add(executor.submit(() -> compiler.compile(source)));
+				}
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(expected.get(i % sources.size()), futures.get(i).get().getCss());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testCompactAstMatchesObjectAst() {
+		ICSSCompiler compiler = new ICSSCompiler();
+		CompileOptions compact = CompileOptions.DEFAULT.withCompactAst(true).withKeepAst(true);
+		for (int seed = 0; seed < 8; seed++) {
+			String source = new StylesheetGenerator(seed).generate(new StylesheetShape().rules(30).nestingDepth(3).ifDepth(2));
+			CompileResult expected = compiler.compile(source, CompileOptions.DEFAULT.withKeepAst(true));
+			CompileResult result = compiler.compile(source, compact);
+
+			assertTrue(result.isSuccess(), result.getErrors().toString());
+			assertEquals(expected.getCss(), result.getCss());
+			assertEquals(expected.getAst(), result.getAst());
+		}
+
+		CompileResult semanticError = compiler.compile("p { width: Undefined; }", compact);
+		assertEquals(compiler.compile("p { width: Undefined; }").getErrors(), semanticError.getErrors());
+		assertNull(semanticError.getCss());
+	}
+
+	@Test
+	void testParallelMatchesSequential() {
+		ICSSCompiler compiler = new ICSSCompiler();
+		CompileOptions parallel = CompileOptions.DEFAULT.withParallel(true);
+		// Large enough to be split into chunks
+		String source = new StylesheetGenerator(4).generate(new StylesheetShape().rules(2000).nestingDepth(2).ifDepth(2)
+				.globalVariables(3).scopedVariables(1));
+		CompileResult result = compiler.compile(source, parallel);
+
+		assertTrue(result.isSuccess(), result.getErrors().toString());
+		assertEquals(compiler.compile(source).getCss(), result.getCss());
+
+		String invalid = source + " q { width: Undefined; color: 1px; }";
+		assertEquals(compiler.compile(invalid).getErrors(), compiler.compile(invalid, parallel).getErrors());
+	}
+}
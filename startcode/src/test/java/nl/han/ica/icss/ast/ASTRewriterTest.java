@@ -0,0 +1,81 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTRewriterTest {
+
+	private static Declaration declaration(String property, int pixels) {
+		Declaration declaration = new Declaration(property);
+		declaration.addChild(new PixelLiteral(pixels));
+		return declaration;
+	}
+
+	@Test
+	void testReplaceChildKeepsOrder() {
+		Stylerule stylerule = new Stylerule();
+		stylerule.addChild(new TagSelector("p"));
+		Declaration first = declaration("width", 1);
+		Declaration second = declaration("width", 1);
+		stylerule.addChild(first);
+		stylerule.addChild(second);
+		stylerule.addChild(declaration("height", 2));
+
+		// The children are equal, so only identity tells the second one apart
+		Declaration replacement = declaration("color", 3);
+		stylerule.replaceChild(second, replacement);
+		assertSame(first, stylerule.body.get(0));
+		assertSame(replacement, stylerule.body.get(1));
+		assertEquals(3, stylerule.body.size());
+
+		stylerule.replaceChildAt(0, new TagSelector("a"));
+		assertEquals("a", stylerule.selectors.get(0).toString());
+		assertThrows(IllegalArgumentException.class, () -> stylerule.replaceChild(second, first));
+		assertThrows(IndexOutOfBoundsException.class, () -> new PixelLiteral(1).replaceChildAt(0, first));
+	}
+
+	@Test
+	void testRewriteReplacesInPlace() {
+		Declaration declaration = new Declaration("width");
+		declaration.addChild(new AddOperation().addChild(new PixelLiteral(1)).addChild(new ScalarLiteral(2)));
+
+		// Every literal becomes 0px, the operation keeps its place
+		ASTNode root = new ASTRewriter().rewrite(declaration, new ASTVisitor<ASTNode, ASTRewriter>() {
+			@Override
+			public ASTNode visitNode(ASTNode node, ASTRewriter rewriter) {
+				return node;
+			}
+
+			@Override
+			public ASTNode visitLiteral(Literal literal, ASTRewriter rewriter) {
+				return new PixelLiteral(0);
+			}
+		});
+
+		assertSame(declaration, root);
+		Operation add = (Operation) declaration.expression;
+		assertEquals(new PixelLiteral(0), add.lhs);
+		assertEquals(new PixelLiteral(0), add.rhs);
+	}
+
+	@Test
+	void testTransformsKeepDocumentOrder() {
+		String source = "W := 1px; p { width: W + 1px; if [TRUE] { height: 2px; if [FALSE] { color: #ffffff; } width: 3px; } color: #000000; }";
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		new EvalExpressions().apply(ast);
+		new RemoveIf().apply(ast);
+
+		assertEquals("p {\n\twidth: 2px;\n\theight: 2px;\n\twidth: 3px;\n\tcolor: #000000;\n}\n\n", new Generator().generate(ast));
+	}
+}
@@ -0,0 +1,72 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.ast.selectors.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTVisitorTest {
+
+	private static final ASTNode[] NODES = {
+			new Stylesheet(), new Stylerule(), new Declaration("width"), new PropertyName("width"), new IfClause(),
+			new VariableAssignment(), new VariableReference("Width"),
+			new AddOperation(), new SubtractOperation(), new MultiplyOperation(),
+			new BoolLiteral(true), new ColorLiteral("#ffffff"), new PercentageLiteral(50), new PixelLiteral(10), new ScalarLiteral(2),
+			new ClassSelector(".menu"), new IdSelector("#menu"), new TagSelector("p")
+	};
+
+	// Names the visit method that was called by the node's class
+	private static final ASTVisitor<String, Void> NAMES = new ASTVisitor<>() {
+		@Override public String visitStylesheet(Stylesheet node, Void context) { return "Stylesheet"; }
+		@Override public String visitStylerule(Stylerule node, Void context) { return "Stylerule"; }
+		@Override public String visitDeclaration(Declaration node, Void context) { return "Declaration"; }
+		@Override public String visitPropertyName(PropertyName node, Void context) { return "PropertyName"; }
+		@Override public String visitIfClause(IfClause node, Void context) { return "IfClause"; }
+		@Override public String visitVariableAssignment(VariableAssignment node, Void context) { return "VariableAssignment"; }
+		@Override public String visitVariableReference(VariableReference node, Void context) { return "VariableReference"; }
+		@Override public String visitAddOperation(AddOperation node, Void context) { return "AddOperation"; }
+		@Override public String visitSubtractOperation(SubtractOperation node, Void context) { return "SubtractOperation"; }
+		@Override public String visitMultiplyOperation(MultiplyOperation node, Void context) { return "MultiplyOperation"; }
+		@Override public String visitBoolLiteral(BoolLiteral node, Void context) { return "BoolLiteral"; }
+		@Override public String visitColorLiteral(ColorLiteral node, Void context) { return "ColorLiteral"; }
+		@Override public String visitPercentageLiteral(PercentageLiteral node, Void context) { return "PercentageLiteral"; }
+		@Override public String visitPixelLiteral(PixelLiteral node, Void context) { return "PixelLiteral"; }
+		@Override public String visitScalarLiteral(ScalarLiteral node, Void context) { return "ScalarLiteral"; }
+		@Override public String visitClassSelector(ClassSelector node, Void context) { return "ClassSelector"; }
+		@Override public String visitIdSelector(IdSelector node, Void context) { return "IdSelector"; }
+		@Override public String visitTagSelector(TagSelector node, Void context) { return "TagSelector"; }
+	};
+
+	@Test
+	void testEveryNodeClassHasItsOwnVisitMethod() {
+		for (ASTNode node : NODES) {
+			assertEquals(node.getClass().getSimpleName(), node.accept(NAMES, null));
+		}
+	}
+
+	@Test
+	void testDefaultsFallBackToTheSuperclass() {
+		ASTVisitor<String, String> visitor = new ASTVisitor<>() {
+			@Override
+			public String visitNode(ASTNode node, String context) {
+				return context + "node";
+			}
+
+			@Override
+			public String visitOperation(Operation node, String context) {
+				return context + "operation";
+			}
+
+			@Override
+			public String visitLiteral(Literal node, String context) {
+				return context + "literal";
+			}
+		};
+		assertEquals(">operation", new MultiplyOperation().accept(visitor, ">"));
+		assertEquals(">literal", new PixelLiteral(1).accept(visitor, ">"));
+		assertEquals(">node", new VariableReference("Width").accept(visitor, ">"));
+		assertEquals(">node", new TagSelector("p").accept(visitor, ">"));
+	}
+}
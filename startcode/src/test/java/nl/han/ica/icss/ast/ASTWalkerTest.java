@@ -0,0 +1,101 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTWalkerTest {
+
+	private static Stylerule rule() {
+		Declaration declaration = new Declaration("width");
+		declaration.addChild(new AddOperation().addChild(new PixelLiteral(1)).addChild(new PixelLiteral(2)));
+		Stylerule stylerule = new Stylerule();
+		stylerule.addChild(new TagSelector("p"));
+		stylerule.addChild(declaration);
+		return stylerule;
+	}
+
+	private static String events(ASTWalker walker) {
+		StringBuilder events = new StringBuilder();
+		while (walker.next()) {
+			events.append(walker.isEnter() ? "+" : "-").append(walker.depth()).append(' ');
+			if (walker.isEnter() && walker.node() instanceof Declaration) {
+				walker.skipChildren();
+			}
+		}
+		return events.toString().trim();
+	}
+
+	@Test
+	void testEnterAndExitInDocumentOrder() {
+		Stylerule stylerule = rule();
+		ArrayList<ASTNode> entered = new ArrayList<>();
+		ArrayList<ASTNode> parents = new ArrayList<>();
+		ASTWalker walker = new ASTWalker(stylerule);
+		while (walker.next()) {
+			if (walker.isEnter()) {
+				entered.add(walker.node());
+				parents.add(walker.parent());
+			}
+		}
+
+		Declaration declaration = (Declaration) stylerule.body.get(0);
+		Operation add = (Operation) declaration.expression;
+		assertEquals(7, entered.size());
+		assertSame(stylerule, entered.get(0));
+		assertNull(parents.get(0));
+		assertSame(declaration.property, entered.get(3));
+		assertSame(declaration, parents.get(3));
+		assertSame(add.rhs, entered.get(6));
+		assertSame(add, parents.get(6));
+	}
+
+	@Test
+	void testSkipChildrenStillExits() {
+		assertEquals("+0 +1 -1 +1 -1 -0", events(new ASTWalker(rule())));
+	}
+
+	@Test
+	void testStructuralEquality() {
+		Stylerule first = rule();
+		Stylerule second = rule();
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		assertEquals(first.toString(), second.toString());
+
+		((PixelLiteral) ((Operation) ((Declaration) second.body.get(0)).expression).rhs).value = 3;
+		assertNotEquals(first, second);
+		second.body.add(new Declaration("color"));
+		assertNotEquals(first, second);
+	}
+
+	@Test
+	void testChildAccessMatchesGetChildren() {
+		String source = new StylesheetGenerator(5).generate(new StylesheetShape().rules(50).ifDepth(2).nestingDepth(2).scopedVariables(2));
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		int nodes = 0;
+		ASTWalker walker = new ASTWalker(ast.root);
+		while (walker.next()) {
+			if (!walker.isEnter()) {
+				continue;
+			}
+			ASTNode node = walker.node();
+			ArrayList<ASTNode> children = node.getChildren();
+			assertEquals(children.size(), node.getChildCount());
+			for (int i = 0; i < children.size(); i++) {
+				assertSame(children.get(i), node.getChild(i));
+			}
+			nodes++;
+		}
+		assertTrue(nodes > 500);
+		assertThrows(IndexOutOfBoundsException.class, () -> new PixelLiteral(1).getChild(0));
+	}
+}
@@ -0,0 +1,126 @@
+package nl.han.ica.icss.ast.flat;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.FlatTransformer;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatASTTest {
+
+	private static final StylesheetShape SHAPE = new StylesheetShape().rules(50).nestingDepth(3).ifDepth(2)
+			.globalVariables(5).scopedVariables(2).expressionLength(4);
+
+	private static AST transform(AST ast) {
+		new EvalExpressions().apply(ast);
+		new RemoveIf().apply(ast);
+		new ReplaceNestedStylerule().apply(ast);
+		return ast;
+	}
+
+	@Test
+	void testRoundTrip() {
+		StylesheetParser parser = new StylesheetParser();
+		for (int seed = 0; seed < 10; seed++) {
+			String source = new StylesheetGenerator(seed).generate(SHAPE);
+			AST ast = parser.parse(source, new ArrayList<>());
+			assertEquals(ast, FlatAST.of(ast).toAST());
+
+			// Transformed rules have parent selectors
+			AST transformed = transform(parser.parse(source, new ArrayList<>()));
+			assertEquals(transformed, FlatAST.of(transformed).toAST());
+		}
+	}
+
+	@Test
+	void testParentSelectorsAreKeptApart() {
+		AST ast = transform(new StylesheetParser().parse("a { b { width: 1px; } }", new ArrayList<>()));
+		Stylerule moved = (Stylerule) FlatAST.of(ast).toAST().root.body.get(1);
+
+		assertEquals("b", moved.selectors.get(0).toString());
+		assertEquals("a", moved.parentSelectors.get(0).toString());
+	}
+
+	@Test
+	void testStringsAreInterned() {
+		AST ast = new StylesheetParser().parse("a { color: #ffffff; } a { color: #ffffff; }", new ArrayList<>());
+		FlatAST flat = FlatAST.of(ast);
+
+		// a, color and #ffffff
+		assertEquals(3, flat.stringCount());
+		assertEquals(11, flat.size());
+	}
+
+	@Test
+	void testParseFlatMatchesParse() {
+		StylesheetParser parser = new StylesheetParser();
+		for (int seed = 0; seed < 10; seed++) {
+			String source = new StylesheetGenerator(seed).generate(SHAPE);
+			List<String> errors = new ArrayList<>();
+			FlatAST flat = parser.parseFlat(CharStreams.fromString(source), errors);
+
+			assertTrue(errors.isEmpty(), errors.toString());
+			assertEquals(parser.parse(source, new ArrayList<>()), flat.toAST());
+		}
+
+		List<String> errors = new ArrayList<>();
+		FlatAST invalid = parser.parseFlat(CharStreams.fromString("p { width: 1px + ; }"), errors);
+		assertFalse(errors.isEmpty());
+		assertEquals(FlatAST.NONE, invalid.root());
+	}
+
+	@Test
+	void testParseFlatReportsLexerErrorsOnce() {
+		StylesheetParser parser = new StylesheetParser();
+		String source = "$ p { width: ; }";
+		List<String> flatErrors = new ArrayList<>();
+		parser.parseFlat(CharStreams.fromString(source), flatErrors);
+		List<String> errors = new ArrayList<>();
+		parser.parse(source, errors);
+
+		assertEquals(errors, flatErrors);
+		assertEquals(1, flatErrors.stream().filter(error -> error.contains("'$'")).count());
+	}
+
+	@Test
+	void testPassesMatchObjectAST() {
+		StylesheetParser parser = new StylesheetParser();
+		for (int seed = 0; seed < 10; seed++) {
+			String source = new StylesheetGenerator(seed).generate(SHAPE);
+			AST ast = parser.parse(source, new ArrayList<>());
+			FlatAST flat = FlatAST.of(ast);
+
+			new Checker().check(ast);
+			assertEquals(ast.getErrors().toString(), new Checker().check(flat).toString());
+
+			FlatAST transformed = new FlatTransformer().apply(flat);
+			transform(ast);
+			assertEquals(ast, transformed.toAST());
+			assertEquals(new Generator().generate(ast), new Generator().generate(transformed));
+		}
+	}
+
+	@Test
+	void testCheckerReportsErrorsInOrder() {
+		AST ast = new StylesheetParser().parse("a { width: X; } B := #ffffff; b { width: B; color: Y; }", new ArrayList<>());
+		new Checker().check(ast);
+		ArrayList<SemanticError> errors = new Checker().check(FlatAST.of(ast));
+
+		assertFalse(errors.isEmpty());
+		assertEquals(ast.getErrors().toString(), errors.toString());
+	}
+}
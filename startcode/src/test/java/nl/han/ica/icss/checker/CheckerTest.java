@@ -0,0 +1,125 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.PropertyDefinition;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckerTest {
+
+	private static AST check(String source) {
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		new Checker().check(ast);
+		return ast;
+	}
+
+	@Test
+	void testTypesAreCachedOnExpressions() {
+		AST ast = check("p { width: 1px + 2px * 3 - 4px; }");
+		Declaration declaration = (Declaration) ((Stylerule) ast.root.body.get(0)).body.get(0);
+		Operation subtract = (Operation) declaration.expression;
+		Operation add = (Operation) subtract.lhs;
+
+		assertTrue(ast.getErrors().isEmpty());
+		assertEquals(ExpressionType.PIXEL, subtract.expressionType);
+		assertEquals(ExpressionType.PIXEL, add.expressionType);
+		assertEquals(ExpressionType.PIXEL, add.rhs.expressionType);
+		assertEquals(ExpressionType.SCALAR, ((Operation) add.rhs).rhs.expressionType);
+	}
+
+	@Test
+	void testCheckAgainAfterChange() {
+		AST ast = check("A := 1px;\nB := 2px;\np { width: A; height: B; }");
+		AST added = new StylesheetParser().parse("C := 3px;\nq { width: C; height: A; }", new ArrayList<>());
+		ast.root.body.add(0, added.root.body.get(0));
+		ast.root.body.add(added.root.body.get(1));
+
+		new Checker().check(ast);
+		assertTrue(ast.getErrors().isEmpty(), ast.getErrors().toString());
+
+		new EvalExpressions().apply(ast);
+		Stylerule q = (Stylerule) ast.root.body.get(4);
+		assertEquals(new PixelLiteral(3), ((Declaration) q.body.get(0)).expression);
+		assertEquals(new PixelLiteral(1), ((Declaration) q.body.get(1)).expression);
+	}
+
+	@Test
+	void testVariableAssignedAnOperation() {
+		assertTrue(check("Size := 2px * 3;\np { width: Size + 1px; }").getErrors().isEmpty());
+		assertEquals(1, check("Size := 2px * 3;\np { width: Size + 50%; }").getErrors().size());
+	}
+
+	@Test
+	void testUndefinedVariableIsReportedOnce() {
+		ArrayList<SemanticError> errors = check("p { width: Undefined; color: Undefined; }").getErrors();
+		assertEquals(2, errors.size(), errors.toString());
+		for (SemanticError error : errors) {
+			assertTrue(error.toString().contains("CH01"), error.toString());
+		}
+	}
+
+	@Test
+	void testLongChain() {
+		StringBuilder expression = new StringBuilder("1px");
+		for (int i = 0; i < 1000; i++) {
+			expression.append(" + 2px * 3");
+		}
+		AST ast = check("p { width: " + expression + " + 5%; }");
+		assertEquals(1, ast.getErrors().size());
+	}
+
+	@Test
+	void testPropertiesComeFromTheRegistry() {
+		assertEquals(1, check("p { width: #ffffff; }").getErrors().size());
+		assertEquals(1, check("p { color: 10px; }").getErrors().size());
+		assertTrue(check("p { background-color: #ffffff; height: 10%; }").getErrors().isEmpty());
+
+		// Any name parses, unknown properties are reported by the checker
+		AST margin = new StylesheetParser().parse("p { margin: 10px; }", new ArrayList<>());
+		new Checker().check(margin);
+		assertEquals("ERROR: CH04: Unknown property margin", margin.getErrors().get(0).toString());
+
+		PropertyRegistry registry = new PropertyRegistry();
+		registry.register(new PropertyDefinition("margin", EnumSet.of(ExpressionType.PIXEL)));
+		margin = new StylesheetParser().parse("p { margin: 10px; }", new ArrayList<>());
+		new Checker(registry).check(margin);
+		assertTrue(margin.getErrors().isEmpty());
+	}
+
+	@Test
+	void testParallelCheckerMatchesChecker() {
+		// W changes type between the rules, so rules only check correctly against the globals at their place
+		StringBuilder source = new StringBuilder("W := 1px;");
+		for (int i = 0; i < 200; i++) {
+			source.append(" r").append(i).append(" { width: W + 1px; color: W; a { height: U").append(i % 3).append("; } }");
+			if (i % 5 == 0) {
+				source.append(i % 10 == 0 ? " W := #ffffff;" : " W := W * 2;");
+			}
+			if (i % 3 == 0) {
+				source.append(" U").append(i % 3).append(" := 10%;");
+			}
+		}
+
+		AST expected = check(source.toString());
+		AST parallel = new StylesheetParser().parse(source.toString(), new ArrayList<>());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ArrayList<SemanticError> errors = new ParallelChecker(new Chunking(pool, 1), PropertyRegistry.DEFAULT).check(parallel);
+			assertTrue(errors.size() > 200);
+			assertEquals(expected.getErrors().toString(), errors.toString());
+			assertEquals(errors.toString(), parallel.getErrors().toString());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
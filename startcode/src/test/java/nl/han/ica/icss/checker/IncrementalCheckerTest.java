@@ -0,0 +1,123 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.IncrementalParser;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalCheckerTest {
+
+	private final StylesheetParser parser = new StylesheetParser();
+
+	private List<String> errors(AST ast) {
+		List<String> errors = new ArrayList<>();
+		for (SemanticError error : ast.getErrors()) {
+			errors.add(error.toString());
+		}
+		return errors;
+	}
+
+	private void assertSameAsFullCheck(IncrementalParser incremental) {
+		AST expected = parser.parse(incremental.getText(), new ArrayList<>());
+		new Checker().check(expected);
+		assertEquals(errors(expected), errors(incremental.getAST()));
+	}
+
+	@Test
+	void testGenerateAfterIncrementalCheck() {
+		String source = "A := 1px;\nB := 2px;\np { width: B; height: A; }\n";
+		AST ast = parser.parse(source, new ArrayList<>());
+		new Checker().check(ast);
+		new IncrementalChecker().check(ast);
+		assertNull(ast.frameSizes);
+
+		new EvalExpressions().apply(ast);
+		AST expected = parser.parse(source, new ArrayList<>());
+		new EvalExpressions().apply(expected);
+		assertEquals(new Generator().generate(expected), new Generator().generate(ast));
+	}
+
+	@Test
+	void testOnlyDependentsAreChecked() {
+		String source = "Size := 10px;\np { width: Size; }\na { color: Size; }\nb { height: 1px; }\n";
+		IncrementalParser incremental = new IncrementalParser(parser);
+		IncrementalChecker checker = new IncrementalChecker();
+		checker.check(incremental.parse(source, new ArrayList<>()));
+		assertEquals(4, checker.getLastCheckedCount());
+		assertEquals(1, errors(incremental.getAST()).size());
+
+		incremental.edit(source.indexOf("10px"), 4, "#ff0000", new ArrayList<>());
+		checker.check(incremental.getAST());
+
+		// The assignment and both of its users, not the unrelated rule
+		assertEquals(3, checker.getLastCheckedCount());
+		assertSameAsFullCheck(incremental);
+
+		checker.check(incremental.getAST());
+		assertEquals(0, checker.getLastCheckedCount());
+	}
+
+	@Test
+	void testTransitiveDependents() {
+		String source = "A := 10px;\nB := A;\np { width: B; }\nq { height: 2px; }\n";
+		IncrementalParser incremental = new IncrementalParser(parser);
+		IncrementalChecker checker = new IncrementalChecker();
+		checker.check(incremental.parse(source, new ArrayList<>()));
+		assertTrue(errors(incremental.getAST()).isEmpty());
+
+		// Removing A leaves B undefined, which p uses
+		incremental.edit(0, source.indexOf('B'), "", new ArrayList<>());
+		checker.check(incremental.getAST());
+		assertEquals(2, checker.getLastCheckedCount());
+		assertSameAsFullCheck(incremental);
+		assertFalse(errors(incremental.getAST()).isEmpty());
+
+		// Putting A back fixes both again
+		incremental.edit(0, 0, "A := 10px;\n", new ArrayList<>());
+		checker.check(incremental.getAST());
+		assertSameAsFullCheck(incremental);
+		assertTrue(errors(incremental.getAST()).isEmpty());
+	}
+
+	@Test
+	void testRandomValueEditsMatchFullCheck() {
+		String source = new StylesheetGenerator(6).generate(new StylesheetShape().rules(30).nestingDepth(2));
+		IncrementalParser incremental = new IncrementalParser(parser);
+		IncrementalChecker checker = new IncrementalChecker();
+		checker.check(incremental.parse(source, new ArrayList<>()));
+		assertSameAsFullCheck(incremental);
+
+		String[] values = {"10px", "50%", "#00ff00", "TRUE", "3", "Undefined"};
+		Pattern literal = Pattern.compile("\\d+px|\\d+%|#[0-9a-f]{6}|TRUE|FALSE");
+		Random random = new Random(9);
+		for (int i = 0; i < 100; i++) {
+			String text = incremental.getText();
+			Matcher matcher = literal.matcher(text);
+			List<int[]> matches = new ArrayList<>();
+			while (matcher.find()) {
+				matches.add(new int[]{matcher.start(), matcher.end()});
+			}
+			int[] match = matches.get(random.nextInt(matches.size()));
+			List<String> syntaxErrors = new ArrayList<>();
+			incremental.edit(match[0], match[1] - match[0], values[random.nextInt(values.length)], syntaxErrors);
+			if (!syntaxErrors.isEmpty()) {
+				incremental.update(text, new ArrayList<>());
+			}
+
+			checker.check(incremental.getAST());
+			assertSameAsFullCheck(incremental);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.parser.StylesheetParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResolverTest {
+
+	private static VariableReference reference(ASTNode declaration) {
+		return (VariableReference) ((Declaration) declaration).expression;
+	}
+
+	@Test
+	void testBindsToInnermostEarlierAssignment() {
+		AST ast = new StylesheetParser().parse(
+				"A := 1px;\nB := 2px;\np {\n\twidth: A;\n\tA := 3px;\n\theight: A;\n\tcolor: C;\n}\nA := 4px;\n", new ArrayList<>());
+		new Resolver().resolve(ast);
+
+		Stylerule stylerule = (Stylerule) ast.root.body.get(2);
+		VariableReference global = reference(stylerule.body.get(0));
+		VariableReference local = reference(stylerule.body.get(2));
+		VariableReference undefined = reference(stylerule.body.get(3));
+		VariableReference reassigned = ((VariableAssignment) ast.root.body.get(3)).name;
+
+		assertEquals(0, global.scopeDepth);
+		assertEquals(0, global.slot);
+		assertEquals(1, local.scopeDepth);
+		assertEquals(0, local.slot);
+		assertEquals(-1, undefined.scopeDepth);
+		// Assigning A again reuses its slot
+		assertEquals(0, reassigned.scopeDepth);
+		assertEquals(0, reassigned.slot);
+		assertArrayEquals(new int[]{2, 1}, ast.frameSizes);
+	}
+}
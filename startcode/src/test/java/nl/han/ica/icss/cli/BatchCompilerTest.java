@@ -0,0 +1,119 @@
+package nl.han.ica.icss.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest {
+
+	private static final String VALID = "p { width: 10px; }";
+	private static final String INVALID = "p { width: Undefined; }";
+
+	private static Path write(Path file, String source) throws Exception {
+		Files.createDirectories(file.getParent());
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static List<Path> paths(List<BatchCompiler.Source> sources) {
+		return sources.stream().map(source -> source.path).collect(Collectors.toList());
+	}
+
+	@Test
+	void testCollectDirectory(@TempDir Path directory) throws Exception {
+		Path a = write(directory.resolve("a.icss"), VALID);
+		Path b = write(directory.resolve("sub/b.icss"), VALID);
+		write(directory.resolve("sub/c.css"), VALID);
+
+		List<BatchCompiler.Source> sources = new BatchCompiler(null, 1)
+				.collectSources(Collections.singletonList(directory.toString()));
+
+		assertEquals(Arrays.asList(a, b), paths(sources));
+		assertEquals(directory.relativize(b), sources.get(1).relativePath);
+	}
+
+	@Test
+	void testCollectGlob(@TempDir Path directory) throws Exception {
+		Path a = write(directory.resolve("one/a.icss"), VALID);
+		write(directory.resolve("two/b.icss"), VALID);
+
+		List<BatchCompiler.Source> sources = new BatchCompiler(null, 1)
+				.collectSources(Collections.singletonList(directory + "/one/*.icss"));
+
+		assertEquals(Collections.singletonList(a), paths(sources));
+	}
+
+	@Test
+	void testCollectFilesOnce(@TempDir Path directory) throws Exception {
+		Path a = write(directory.resolve("a.icss"), VALID);
+
+		List<BatchCompiler.Source> sources = new BatchCompiler(null, 1)
+				.collectSources(Arrays.asList(a.toString(), a.toString()));
+
+		assertEquals(Collections.singletonList(a), paths(sources));
+		assertEquals(a.getFileName(), sources.get(0).relativePath);
+	}
+
+	@Test
+	void testTargetsNextToSource(@TempDir Path directory) throws Exception {
+		Path a = write(directory.resolve("sub/a.icss"), VALID);
+		BatchCompiler compiler = new BatchCompiler(null, 1);
+
+		List<BatchCompiler.Result> results = compiler.compile(compiler.collectSources(Collections.singletonList(a.toString())));
+
+		assertTrue(results.get(0).isSuccess(), results.get(0).errors.toString());
+		assertEquals(directory.resolve("sub/a.css"), results.get(0).target);
+		assertTrue(Files.exists(directory.resolve("sub/a.css")));
+	}
+
+	@Test
+	void testTargetsInOutputDirectory(@TempDir Path directory) throws Exception {
+		write(directory.resolve("in/a.icss"), VALID);
+		write(directory.resolve("in/sub/b.icss"), VALID);
+		Path output = directory.resolve("out");
+		BatchCompiler compiler = new BatchCompiler(output, 2);
+
+		List<BatchCompiler.Result> results = compiler.compile(
+				compiler.collectSources(Collections.singletonList(directory.resolve("in").toString())));
+
+		assertEquals(output.resolve("a.css"), results.get(0).target);
+		assertEquals(output.resolve("sub/b.css"), results.get(1).target);
+		assertEquals("p {\n\twidth: 10px;\n}\n\n", Files.readString(output.resolve("sub/b.css")));
+	}
+
+	@Test
+	void testDuplicateTargetsAreRejected(@TempDir Path directory) throws Exception {
+		Path a = write(directory.resolve("a/x.icss"), VALID);
+		Path b = write(directory.resolve("b/x.icss"), VALID);
+		List<String> inputs = Arrays.asList(a.toString(), b.toString());
+
+		BatchCompiler intoOutput = new BatchCompiler(directory.resolve("out"), 1);
+		assertThrows(IllegalArgumentException.class, () -> intoOutput.collectSources(inputs));
+
+		// Next to their sources the targets differ
+		assertEquals(2, new BatchCompiler(null, 1).collectSources(inputs).size());
+	}
+
+	@Test
+	void testExitCodes(@TempDir Path directory) throws Exception {
+		Path valid = write(directory.resolve("valid/x.icss"), VALID);
+		Path invalid = write(directory.resolve("invalid/x.icss"), INVALID);
+		String output = directory.resolve("out").toString();
+
+		assertEquals(0, Main.run(new String[]{"-j", "1", valid.toString()}));
+		assertEquals(1, Main.run(new String[]{"-j", "1", invalid.toString()}));
+		assertEquals(2, Main.run(new String[]{}));
+		assertEquals(2, Main.run(new String[]{"-j", "0", valid.toString()}));
+		assertEquals(2, Main.run(new String[]{directory.resolve("missing.icss").toString()}));
+		assertEquals(2, Main.run(new String[]{"-o", output, valid.toString(), invalid.toString()}));
+	}
+}
@@ -0,0 +1,111 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Chunking;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.PropertyDefinition;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.ReplaceNestedStylerule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorTest {
+
+	// Large enough to fill the output buffer several times
+	private static AST transformedAst() {
+		String source = new StylesheetGenerator(8).generate(new StylesheetShape().rules(500).nestingDepth(3));
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		new EvalExpressions().apply(ast);
+		new RemoveIf().apply(ast);
+		new ReplaceNestedStylerule().apply(ast);
+		return ast;
+	}
+
+	@Test
+	void testStreamedOutputEqualsString() throws Exception {
+		AST ast = transformedAst();
+		Generator generator = new Generator();
+		String expected = generator.generate(ast);
+
+		StringWriter writer = new StringWriter();
+		generator.generate(ast, writer);
+		assertEquals(expected, writer.toString());
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		generator.generate(ast, stream);
+		assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+		ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+		generator.generate(ast, Channels.newChannel(channelTarget));
+		assertEquals(expected, channelTarget.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testDeepIndentation() throws Exception {
+		String source = new StylesheetGenerator(2).generate(new StylesheetShape().rules(1).nestingDepth(20));
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		Generator generator = new Generator();
+		String expected = generator.generate(ast);
+		assertTrue(expected.contains("\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t"), expected);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		generator.generate(ast, stream);
+		assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testPropertyNamesComeFromTheRegistry() {
+		AST ast = new StylesheetParser().parse("p { bg-color: #ffffff; width: 1px; }", new ArrayList<>());
+		PropertyRegistry registry = new PropertyRegistry();
+		registry.register(new PropertyDefinition("bg-color", EnumSet.of(ExpressionType.COLOR), "background-color"));
+
+		assertEquals("p {\n\tbackground-color: #ffffff;\n\twidth: 1px;\n}\n\n", new Generator(registry).generate(ast));
+	}
+
+	@Test
+	void testParallelOutputEqualsSequential(@TempDir Path directory) throws Exception {
+		AST ast = transformedAst();
+		String expected = new Generator().generate(ast);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelGenerator generator = new ParallelGenerator(new Chunking(pool, 1), PropertyRegistry.DEFAULT);
+			assertEquals(expected, generator.generate(ast));
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			generator.generate(ast, stream);
+			assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+			ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+			generator.generate(ast, Channels.newChannel(channelTarget));
+			assertEquals(expected, channelTarget.toString(StandardCharsets.UTF_8));
+
+			// A file channel gets a gathering write
+			Path file = directory.resolve("out.css");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				generator.generate(ast, channel);
+			}
+			assertEquals(expected, Files.readString(file));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalParserTest {
+
+	private final StylesheetParser parser = new StylesheetParser();
+
+	private void assertSameAsFullParse(IncrementalParser incremental, List<String> errors) {
+		List<String> expectedErrors = new ArrayList<>();
+		AST expected = parser.parse(incremental.getText(), expectedErrors);
+		assertEquals(expectedErrors, errors);
+		if (expectedErrors.isEmpty()) {
+			assertEquals(expected, incremental.getAST());
+		}
+	}
+
+	@Test
+	void testEditOnlyReplacesTouchedRule() {
+		IncrementalParser incremental = new IncrementalParser(parser);
+		String source = "Width := 10px;\np { width: Width; }\n#menu { color: #ff0000; }\n.note { height: 5px; }\n";
+		AST ast = incremental.parse(source, new ArrayList<>());
+		List<ASTNode> before = new ArrayList<>(ast.root.body);
+
+		List<String> errors = new ArrayList<>();
+		int offset = source.indexOf("#ff0000");
+		incremental.edit(offset, 7, "#00ff00", errors);
+
+		assertTrue(errors.isEmpty(), errors.toString());
+		assertSame(ast, incremental.getAST());
+		assertSame(before.get(0), ast.root.body.get(0));
+		assertSame(before.get(1), ast.root.body.get(1));
+		assertNotSame(before.get(2), ast.root.body.get(2));
+		assertSame(before.get(3), ast.root.body.get(3));
+		assertSameAsFullParse(incremental, errors);
+	}
+
+	@Test
+	void testEditsAcrossRuleBoundaries() {
+		IncrementalParser incremental = new IncrementalParser(parser);
+		String source = "p { width: 1px; }\na { height: 2px; }";
+		incremental.parse(source, new ArrayList<>());
+
+		// Insert a rule between two others, join two rules, delete a rule
+		List<String> errors = new ArrayList<>();
+		incremental.edit(source.indexOf('\n'), 0, "\n.x { color: #123456; }", errors);
+		assertSameAsFullParse(incremental, errors);
+
+		errors.clear();
+		incremental.update(incremental.getText().replace("} a", "a"), errors);
+		assertSameAsFullParse(incremental, errors);
+
+		errors.clear();
+		incremental.edit(0, incremental.getText().indexOf(".x"), "", errors);
+		assertSameAsFullParse(incremental, errors);
+	}
+
+	@Test
+	void testUnbalancedEditFallsBackToFullParse() {
+		IncrementalParser incremental = new IncrementalParser(parser);
+		String source = "p { width: 1px; }\na { height: 2px; }";
+		incremental.parse(source, new ArrayList<>());
+
+		List<String> errors = new ArrayList<>();
+		incremental.edit(source.indexOf('}'), 1, "", errors);
+		assertFalse(errors.isEmpty());
+		assertSameAsFullParse(incremental, errors);
+
+		// Repairing it again brings back the original
+		errors.clear();
+		incremental.update(source, errors);
+		assertTrue(errors.isEmpty(), errors.toString());
+		assertSameAsFullParse(incremental, errors);
+	}
+
+	@Test
+	void testRandomEditsMatchFullParse() {
+		String source = new StylesheetGenerator(11).generate(new StylesheetShape().rules(8));
+		IncrementalParser incremental = new IncrementalParser(parser);
+		incremental.parse(source, new ArrayList<>());
+		String[] insertions = {"", " ", "}", "{", ";", "p { width: 3px; }", "Var := 4px;", "10", "#abcdef", "\n"};
+		Random random = new Random(4);
+
+		for (int i = 0; i < 200; i++) {
+			String text = incremental.getText();
+			int offset = random.nextInt(text.length() + 1);
+			int removed = Math.min(random.nextInt(12), text.length() - offset);
+			List<String> errors = new ArrayList<>();
+			incremental.edit(offset, removed, insertions[random.nextInt(insertions.length)], errors);
+			assertSameAsFullParse(incremental, errors);
+
+			// Keep the document mostly valid by undoing broken edits
+			if (!errors.isEmpty()) {
+				incremental.update(text, new ArrayList<>());
+			}
+		}
+	}
+}
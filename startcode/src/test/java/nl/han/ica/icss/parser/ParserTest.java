@@ -1,17 +1,26 @@
 package nl.han.ica.icss.parser;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ParserTest {
 
@@ -83,4 +92,94 @@ class ParserTest {
 		AST exp = Fixtures.uncheckedLevel3();
 		assertEquals(exp,sut);
 	}
+
+	@Test
+	void testBuilderMatchesParseTreeListener() throws IOException {
+		StylesheetParser withoutTree = new StylesheetParser(true, false);
+		StylesheetParser withTree = new StylesheetParser(true, true);
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			assertEquals(parseTestFile(resource), withoutTree.parse(CharStreams.fromStream(
+					this.getClass().getClassLoader().getResourceAsStream(resource)), new ArrayList<>()));
+		}
+		String generated = new StylesheetGenerator(7).generate(new StylesheetShape().rules(200).nestingDepth(3).expressionLength(6));
+		List<String> errors = new ArrayList<>();
+		assertEquals(withTree.parse(generated, new ArrayList<>()), withoutTree.parse(generated, errors));
+		assertTrue(errors.isEmpty(), errors.toString());
+
+		// Invalid input reports the same errors either way
+		List<String> treeErrors = new ArrayList<>();
+		List<String> builderErrors = new ArrayList<>();
+		withTree.parse("p { width: 1px + ; } a { color: }", treeErrors);
+		withoutTree.parse("p { width: 1px + ; } a { color: }", builderErrors);
+		assertFalse(builderErrors.isEmpty());
+		assertEquals(treeErrors, builderErrors);
+	}
+
+	@Test
+	void testTwoStageFallsBackOnlyOnErrors() {
+		StylesheetParser twoStage = new StylesheetParser();
+		StylesheetParser llOnly = new StylesheetParser(false);
+		String valid = new StylesheetGenerator(3).generate(new StylesheetShape().rules(50).nestingDepth(2));
+
+		List<String> errors = new ArrayList<>();
+		assertEquals(llOnly.parse(valid, new ArrayList<>()), twoStage.parse(valid, errors));
+		assertTrue(errors.isEmpty(), errors.toString());
+		assertEquals(0, twoStage.getFallbackCount());
+
+		for (String invalid : new String[]{"p { width: 1px + ; } a { color: }", "$ p { width: ; }"}) {
+			List<String> twoStageErrors = new ArrayList<>();
+			List<String> llErrors = new ArrayList<>();
+			twoStage.parse(invalid, twoStageErrors);
+			llOnly.parse(invalid, llErrors);
+			assertFalse(twoStageErrors.isEmpty());
+			assertEquals(llErrors, twoStageErrors);
+		}
+		assertEquals(2, twoStage.getFallbackCount());
+		assertEquals(3, twoStage.getParseCount());
+	}
+
+	@Test
+	void testPooledContextKeepsNoErrorListener() {
+		StylesheetParser parser = new StylesheetParser();
+		List<String> errors = new ArrayList<>();
+		parser.parse("$ p { width: 1px + ; }", errors);
+		assertFalse(errors.isEmpty());
+
+		// The context the failed parse returned to the pool must not report into the old list, or into the new one
+		int reported = errors.size();
+		List<String> validErrors = new ArrayList<>();
+		AST ast = parser.parse("p { width: 1px; }", validErrors);
+		assertTrue(validErrors.isEmpty(), validErrors.toString());
+		assertEquals(reported, errors.size());
+		assertEquals(1, ast.root.body.size());
+	}
+
+	@Test
+	void testWarmupProfileRoundTrip(@TempDir Path directory) throws IOException {
+		Path profile = directory.resolve("warmup.profile");
+		List<String> samples = Arrays.asList("A := 1px;\np { width: A + 2px; }", "a { if [TRUE] { color: #ffffff; } }");
+		WarmupProfile.save(profile, samples);
+
+		StylesheetParser parser = new StylesheetParser();
+		assertTrue(WarmupProfile.load(profile, parser));
+		assertEquals(samples.size(), parser.getParseCount());
+	}
+
+	@Test
+	void testWarmupProfileOfOtherGrammarOrFormat(@TempDir Path directory) throws IOException {
+		Path otherGrammar = directory.resolve("other-grammar.profile");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(otherGrammar))) {
+			// The right magic number, but a fingerprint no grammar has
+			out.writeInt(0x49435353);
+			out.writeInt(0);
+			out.writeInt(0);
+		}
+		StylesheetParser parser = new StylesheetParser();
+		assertFalse(WarmupProfile.load(otherGrammar, parser));
+		assertEquals(0, parser.getParseCount());
+
+		Path notAProfile = directory.resolve("not-a-profile");
+		Files.write(notAProfile, "p { width: 1px; }".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IOException.class, () -> WarmupProfile.load(notAProfile, parser));
+	}
 }
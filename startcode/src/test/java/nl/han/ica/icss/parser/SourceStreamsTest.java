@@ -0,0 +1,72 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.antlr.v4.runtime.CharStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceStreamsTest {
+
+	private final StylesheetParser parser = new StylesheetParser();
+
+	private AST parse(String source) {
+		List<String> errors = new ArrayList<>();
+		AST ast = parser.parse(source, errors);
+		assertTrue(errors.isEmpty(), errors.toString());
+		return ast;
+	}
+
+	@Test
+	void testLargeAsciiFileIsMapped(@TempDir Path directory) throws IOException {
+		String source = new StylesheetGenerator(5).generate(new StylesheetShape().rules(500));
+		Path file = directory.resolve("large.icss");
+		Files.writeString(file, source, StandardCharsets.US_ASCII);
+
+		CharStream stream = SourceStreams.fromPath(file);
+		assertTrue(stream instanceof ByteBufferCharStream);
+		assertEquals(source, stream.toString());
+
+		List<String> errors = new ArrayList<>();
+		assertEquals(parse(source), parser.parse(file, errors));
+		assertTrue(errors.isEmpty(), errors.toString());
+	}
+
+	@Test
+	void testNonAsciiFileIsDecoded(@TempDir Path directory) throws IOException {
+		// Antlr reports the unknown character, the rest of the file should still be read correctly
+		String source = new StylesheetGenerator(5).generate(new StylesheetShape().rules(500)) + "é";
+		Path file = directory.resolve("utf8.icss");
+		Files.writeString(file, source, StandardCharsets.UTF_8);
+
+		CharStream stream = SourceStreams.fromPath(file);
+		assertFalse(stream instanceof ByteBufferCharStream);
+		assertEquals(source, stream.toString());
+	}
+
+	@Test
+	void testStreamingSources() throws IOException {
+		String source = new StylesheetGenerator(6).generate(new StylesheetShape().rules(20));
+		byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+		AST expected = parse(source);
+
+		List<String> errors = new ArrayList<>();
+		assertEquals(expected, parser.parse(new StringReader(source), errors));
+		assertEquals(expected, parser.parse(new ByteArrayInputStream(bytes), errors));
+		assertEquals(expected, parser.parse(Channels.newChannel(new ByteArrayInputStream(bytes)), errors));
+		assertTrue(errors.isEmpty(), errors.toString());
+	}
+}
@@ -0,0 +1,42 @@
+package nl.han.ica.icss.synthetic;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoakTest {
+
+	@Test
+	void testGeneratorIsReproducible() {
+		StylesheetShape shape = new StylesheetShape().rules(50).ifDepth(3).nestingDepth(2).selectorWidth(3);
+		assertEquals(new StylesheetGenerator(42).generate(shape), new StylesheetGenerator(42).generate(shape));
+	}
+
+	@Test
+	void testGeneratedStylesheetIsValid() {
+		StylesheetShape shape = new StylesheetShape()
+				.globalVariables(20)
+				.scopedVariables(5)
+				.rules(200)
+				.ifDepth(4)
+				.nestingDepth(3)
+				.expressionLength(8)
+				.selectorWidth(3);
+
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(new StylesheetGenerator(7).generate(shape));
+		assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		assertTrue(pipeline.isTransformed(), pipeline.getErrors().toString());
+	}
+
+	@Test
+	void testSoak() {
+		StylesheetShape shape = new StylesheetShape().rules(200);
+		SoakRunner.Report report = new SoakRunner(shape, 3, 1).run();
+		report.assertWithin(10_000, 1024L * 1024 * 1024);
+	}
+}
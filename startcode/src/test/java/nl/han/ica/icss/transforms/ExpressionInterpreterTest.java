@@ -0,0 +1,92 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionInterpreterTest {
+
+	private static AST parse(String source) {
+		AST ast = new StylesheetParser().parse(source, new ArrayList<>());
+		new Resolver().resolve(ast);
+		return ast;
+	}
+
+	private static Expression firstExpression(AST ast) {
+		Stylerule stylerule = (Stylerule) ast.root.body.get(ast.root.body.size() - 1);
+		return ((Declaration) stylerule.body.get(0)).expression;
+	}
+
+	@Test
+	void testBytecodeMatchesTreeWalker() {
+		StylesheetShape shape = new StylesheetShape().rules(100).nestingDepth(2).ifDepth(2)
+				.globalVariables(10).scopedVariables(3).expressionLength(8);
+		for (int seed = 0; seed < 10; seed++) {
+			String source = new StylesheetGenerator(seed).generate(shape);
+			AST bytecode = parse(source);
+			AST treeWalker = parse(source);
+			new EvalExpressions(true).apply(bytecode);
+			new EvalExpressions(false).apply(treeWalker);
+			assertEquals(treeWalker, bytecode);
+		}
+	}
+
+	@Test
+	void testUnits() {
+		ExpressionCompiler compiler = new ExpressionCompiler();
+		ExpressionInterpreter interpreter = new ExpressionInterpreter();
+		Literal[][] noVariables = new Literal[1][0];
+
+		interpreter.run(compiler.compile(firstExpression(parse("p { width: 2 * 3 + 10% - 1; }"))).toArray(), noVariables);
+		assertEquals(new PercentageLiteral(15), interpreter.toLiteral());
+
+		interpreter.run(compiler.compile(firstExpression(parse("p { width: 2 * 3px + 10%; }"))).toArray(), noVariables);
+		assertEquals(new PixelLiteral(16), interpreter.toLiteral());
+
+		interpreter.run(compiler.compile(firstExpression(parse("p { width: 2 - 3 * 4; }"))).toArray(), noVariables);
+		assertEquals(new ScalarLiteral(-10), interpreter.toLiteral());
+	}
+
+	@Test
+	void testProgramCanBeRunWithOtherVariables() {
+		AST ast = parse("Gap := 1px;\np { width: Gap * 2 + 4px; }");
+		int[] program = new ExpressionCompiler().compile(firstExpression(ast)).toArray();
+		ExpressionInterpreter interpreter = new ExpressionInterpreter();
+
+		Literal[][] variables = new Literal[ast.frameSizes.length][];
+		variables[0] = new Literal[]{new PixelLiteral(1)};
+		interpreter.run(program, variables);
+		assertEquals(6, interpreter.value());
+
+		variables[0][0] = new PercentageLiteral(10);
+		interpreter.run(program, variables);
+		assertEquals(24, interpreter.value());
+		assertEquals(ExpressionCompiler.PIXEL, interpreter.unit());
+	}
+
+	@Test
+	void testDeepStack() {
+		// Right-deep, so every operand is pushed before the first operation runs
+		Expression chain = new PixelLiteral(1);
+		for (int i = 0; i < 100; i++) {
+			chain = (Expression) new AddOperation().addChild(new PixelLiteral(1)).addChild(chain);
+		}
+		ExpressionCompiler compiler = new ExpressionCompiler().compile(chain);
+		ExpressionInterpreter interpreter = new ExpressionInterpreter();
+		interpreter.run(compiler.toArray(), new Literal[1][0]);
+
+		assertEquals(101, compiler.maxStackDepth());
+		assertEquals(new PixelLiteral(101), interpreter.toLiteral());
+	}
+}
@@ -0,0 +1,100 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Chunking;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.synthetic.StylesheetGenerator;
+import nl.han.ica.icss.synthetic.StylesheetShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FusedTransformerTest {
+
+	private static final StylesheetParser PARSER = new StylesheetParser();
+
+	private static AST parse(String source) {
+		ArrayList<String> errors = new ArrayList<>();
+		AST ast = PARSER.parse(source, errors);
+		assertTrue(errors.isEmpty(), errors.toString());
+		new Checker().check(ast);
+		assertTrue(ast.getErrors().isEmpty(), ast.getErrors().toString());
+		return ast;
+	}
+
+	private static void assertSameAsPasses(String source) {
+		AST expected = parse(source);
+		new EvalExpressions().apply(expected);
+		new RemoveIf().apply(expected);
+		new ReplaceNestedStylerule().apply(expected);
+
+		AST fused = parse(source);
+		new FusedTransformer().apply(fused);
+		assertEquals(expected, fused, source);
+	}
+
+	@Test
+	void testMatchesSeparatePasses() {
+		for (int seed = 0; seed < 40; seed++) {
+			StylesheetShape shape = new StylesheetShape().rules(20).ifDepth(seed % 3).nestingDepth(seed % 4)
+					.expressionLength(seed % 5 + 1).selectorWidth(seed % 2 + 1).globalVariables(seed % 3).scopedVariables(seed % 2);
+			assertSameAsPasses(new StylesheetGenerator(seed).generate(shape));
+		}
+		assertSameAsPasses("W := 1px; p { width: W + 1px; if [TRUE] { a { height: W; } W := 2px; width: W; } color: #000000; b { width: W * 2; } }");
+		assertSameAsPasses("a, b { width: 1px; c { height: 2px; d { color: #ffffff; } } }");
+	}
+
+	@Test
+	void testParserFindsFeatures() {
+		assertEquals(0, parse("p { width: 1px; } a { color: #ffffff; }").features);
+		assertEquals(AST.VARIABLES, parse("C := #ffffff; p { color: C; }").features);
+		assertEquals(AST.OPERATIONS, parse("p { width: 1px + 2px; }").features);
+		assertEquals(AST.IF_CLAUSES, parse("p { if [TRUE] { width: 1px; } }").features);
+		assertEquals(AST.NESTED_RULES, parse("p { a { width: 1px; } }").features);
+		assertEquals(AST.ALL_FEATURES, new AST().features);
+	}
+
+	@Test
+	void testSkipsWhatIsNotUsed() {
+		AST plain = PARSER.parse("p { width: 1px; }", new ArrayList<>());
+		new FusedTransformer().apply(plain);
+		assertNull(plain.frameSizes);
+
+		// Nested rules alone need no variables resolved
+		AST nested = PARSER.parse("p { a { width: 1px; } }", new ArrayList<>());
+		new FusedTransformer().apply(nested);
+		assertNull(nested.frameSizes);
+		assertEquals(2, nested.root.body.size());
+	}
+
+	@Test
+	void testParallelMatchesFused() {
+		// Globals assigned between the rules, so the rules have to see different values
+		StringBuilder interleaved = new StringBuilder("W := 1px;");
+		for (int i = 0; i < 200; i++) {
+			interleaved.append(" r").append(i).append(" { width: W * 2; a { height: W; } }");
+			if (i % 7 == 0) {
+				interleaved.append(" W := W + ").append(i).append("px;");
+			}
+		}
+		String generated = new StylesheetGenerator(3).generate(new StylesheetShape().rules(300).ifDepth(2).nestingDepth(3)
+				.globalVariables(4).scopedVariables(2).expressionLength(3));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (String source : new String[] {interleaved.toString(), generated}) {
+				AST expected = parse(source);
+				new FusedTransformer().apply(expected);
+				AST parallel = parse(source);
+				new ParallelTransformer(new Chunking(pool, 1)).apply(parallel);
+				assertEquals(expected, parallel);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}